@@ -1,18 +1,33 @@
 package com.beerboy.ss;
 
+import com.beerboy.ss.cache.ResponseCache;
+import com.beerboy.ss.codec.JsonCodec;
+import com.beerboy.ss.cors.CorsPolicy;
 import com.beerboy.ss.descriptor.EndpointDescriptor;
 import com.beerboy.ss.descriptor.MethodDescriptor;
+import com.beerboy.ss.factory.ParamsFactory;
+import com.beerboy.ss.metrics.MetricsRegistry;
 import com.beerboy.ss.model.HttpMethod;
+import com.beerboy.ss.rest.TypedRoute;
+import com.beerboy.ss.validation.ParamsValidator;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import kotlin.jvm.JvmClassMappingKt;
 
 import spark.Filter;
 import spark.ResponseTransformer;
+import spark.ResponseTransformerRouteImpl;
 import spark.Route;
+import spark.RouteImpl;
 import spark.TemplateEngine;
 import spark.TemplateViewRoute;
+import spark.TemplateViewRouteImpl;
 
 /**
  * @author manusant
@@ -22,24 +37,27 @@ public class ApiEndpoint {
     private SparkSwagger swagger;
     private EndpointDescriptor endpointDescriptor;
     private List<MethodDescriptor> methodDescriptors;
+    // Handlers bound by this endpoint by route key, see RouteRegistry
+    private final Map<String, Object> handlers = new ConcurrentHashMap<>();
 
     public ApiEndpoint(final SparkSwagger swagger, final EndpointDescriptor endpointDescriptor) {
         this.swagger = swagger;
         this.endpointDescriptor = endpointDescriptor;
         this.endpointDescriptor.setNameSpace(swagger.getServiceName() + endpointDescriptor.getPath());
-        this.methodDescriptors = new ArrayList<>();
+        this.methodDescriptors = new CopyOnWriteArrayList<>();
     }
 
     public static ApiEndpoint of(final SparkSwagger swagger, final EndpointDescriptor endpointDescriptor) {
         return new ApiEndpoint(swagger, endpointDescriptor);
     }
 
-    private MethodDescriptor bindDescription(HttpMethod method, MethodDescriptor.Builder descriptorBuilder, Route route) {
+    private MethodDescriptor bindDescription(HttpMethod method, MethodDescriptor.Builder descriptorBuilder, Object route) {
         Optional.ofNullable(descriptorBuilder).orElseThrow(() -> new IllegalArgumentException("Description is required"));
         MethodDescriptor descriptor = descriptorBuilder.build();
         descriptor.setMethod(method);
         descriptor.setPath(endpointDescriptor.getPath() + descriptor.getPath());
         methodDescriptors.add(descriptor);
+        swagger.invalidateDoc(this);
 
         return descriptor;
     }
@@ -49,9 +67,165 @@ public class ApiEndpoint {
         MethodDescriptor descriptor = descriptorBuilder.build();
         descriptor.setMethod(method);
         methodDescriptors.add(descriptor);
+        swagger.invalidateDoc(this);
         return descriptor;
     }
 
+    private Route bind(String method, MethodDescriptor descriptor, String acceptType, Route route) {
+        ParamsValidator validator = validator(descriptor);
+        Route handler = descriptor.isResponseStreamed() ? streamed(descriptor, route) : route;
+        if (descriptor.getCachePolicy() != null) {
+            handler = cached(method, descriptor, handler);
+        }
+        handler = validator != null ? validator.wrap(handler) : handler;
+        if (swagger.getConfig().getMetrics()) {
+            // Keyed by the operation as found in the spec
+            MetricsRegistry metrics = swagger.getMetrics();
+            handler = metrics.wrap(metrics.operation(method, ParamsFactory.formatPath(descriptor.getPath())), handler);
+        }
+        allowCors(method, descriptor);
+        return swagger.getRoutes().route(key(method, descriptor, acceptType, handler), handler);
+    }
+
+    private TemplateViewRoute bindTemplate(String method, MethodDescriptor descriptor, String acceptType, TemplateViewRoute route) {
+        if (descriptor.getCachePolicy() != null) {
+            throw notCacheable(descriptor);
+        }
+        ParamsValidator validator = validator(descriptor);
+        TemplateViewRoute handler = validator != null ? validator.wrapTemplate(route) : route;
+        allowCors(method, descriptor);
+        return swagger.getRoutes().template(key(method, descriptor, acceptType, handler), handler);
+    }
+
+    /**
+     * Decodes request bodies as the request type of the descriptor, with a codec resolved once here.
+     */
+    private <T> Route typed(MethodDescriptor descriptor, TypedRoute<T> route) {
+        if (descriptor.getRequestType() == null) {
+            throw new IllegalArgumentException("Request type is required to bind a typed route on " + descriptor.getPath());
+        }
+        JsonCodec<T> codec = swagger.getCodecs().codec(JvmClassMappingKt.getJavaClass(descriptor.getRequestType()), descriptor.isRequestAsCollection());
+        return (request, response) -> {
+            T body;
+            try {
+                body = codec.read(request);
+            } catch (IOException e) {
+                throw swagger.halt(400, "Invalid request body");
+            }
+            return route.handle(body, request, response);
+        };
+    }
+
+    /**
+     * Writes the results of the response type of the descriptor straight to the response, with a codec resolved
+     * once here. Any other result, such as an error response, is left to Spark.
+     */
+    private Route streamed(MethodDescriptor descriptor, Route route) {
+        if (descriptor.getResponseType() == null) {
+            throw new IllegalArgumentException("Response type is required to stream the responses of " + descriptor.getPath());
+        }
+        Class<?> responseType = JvmClassMappingKt.getJavaClass(descriptor.getResponseType());
+        boolean collection = descriptor.isResponseAsCollection();
+        JsonCodec<Object> codec = swagger.getCodecs().codec(responseType, collection);
+        return (request, response) -> {
+            Object result = route.handle(request, response);
+            if (collection ? result instanceof List : responseType.isInstance(result)) {
+                codec.write(result, response.raw());
+                // Body already written, Spark has nothing left to serialize
+                return "";
+            }
+            return result;
+        };
+    }
+
+    /**
+     * Serves repeated GET requests from the cache of the operation, responses written straight to the servlet
+     * response can't be cached.
+     */
+    private Route cached(String method, MethodDescriptor descriptor, Route route) {
+        if (!method.equals("get") || descriptor.isResponseStreamed()) {
+            throw notCacheable(descriptor);
+        }
+        ResponseCache cache = swagger.getCaches().create(method, ParamsFactory.formatPath(descriptor.getPath()), descriptor.getCachePolicy(), descriptor.getParameters());
+        return cache.wrap(route);
+    }
+
+    private static IllegalArgumentException notCacheable(MethodDescriptor descriptor) {
+        return new IllegalArgumentException("Only GET routes with serialized responses can be cached, on " + descriptor.getPath());
+    }
+
+    /**
+     * Route rendering its results with a transformer. Cached routes render them within the handler, so the cache
+     * holds the rendered output.
+     */
+    private RouteImpl transformed(String method, MethodDescriptor descriptor, String acceptType, Route route, ResponseTransformer transformer) {
+        String path = swagger.getServiceName() + descriptor.getPath();
+        if (descriptor.getCachePolicy() != null) {
+            return RouteImpl.create(path, acceptType, bind(method, descriptor, acceptType, (request, response) -> transformer.render(route.handle(request, response))));
+        }
+        Route handler = bind(method, descriptor, acceptType, route);
+        return acceptType != null ? ResponseTransformerRouteImpl.create(path, acceptType, handler, transformer) : ResponseTransformerRouteImpl.create(path, handler, transformer);
+    }
+
+    /**
+     * Route rendering its views with a template engine. Cached routes render them within the handler, so the
+     * cache holds the rendered page.
+     */
+    private RouteImpl template(String method, MethodDescriptor descriptor, String acceptType, TemplateViewRoute route, TemplateEngine engine) {
+        String path = swagger.getServiceName() + descriptor.getPath();
+        if (descriptor.getCachePolicy() != null) {
+            return RouteImpl.create(path, acceptType, bind(method, descriptor, acceptType, (request, response) -> engine.render(route.handle(request, response))));
+        }
+        TemplateViewRoute handler = bindTemplate(method, descriptor, acceptType, route);
+        return acceptType != null ? TemplateViewRouteImpl.create(path, acceptType, handler, engine) : TemplateViewRouteImpl.create(path, handler, engine);
+    }
+
+    private ParamsValidator validator(MethodDescriptor descriptor) {
+        return swagger.getConfig().getValidateParams() ? ParamsValidator.of(swagger.getSpark(), descriptor.getParameters()) : null;
+    }
+
+    private Filter bindFilter(String method, MethodDescriptor descriptor, String acceptType, Filter filter) {
+        return swagger.getRoutes().filter(key(method, descriptor, acceptType, filter), filter);
+    }
+
+    /**
+     * Registers a route with the route dispatcher when enabled, with Spark otherwise. The dispatcher replaces
+     * routes bound again, Spark keeps the slot registered first.
+     */
+    private void route(String method, RouteImpl route) {
+        RouteDispatcher dispatcher = swagger.getDispatcher();
+        if (dispatcher != null) {
+            dispatcher.add(method, route);
+        } else if (claim(method, route.getPath(), route.getAcceptType())) {
+            swagger.getSpark().addRoute(spark.route.HttpMethod.valueOf(method), route);
+        }
+    }
+
+    private boolean claim(String method, String path, String acceptType) {
+        return swagger.getRoutes().claim(RouteRegistry.key(method, path, acceptType));
+    }
+
+    private void allowCors(String method, MethodDescriptor descriptor) {
+        CorsPolicy cors = swagger.getCors();
+        if (cors != null) {
+            cors.allow(method, swagger.getServiceName() + descriptor.getPath());
+        }
+    }
+
+    private String key(String method, MethodDescriptor descriptor, String acceptType, Object handler) {
+        String key = RouteRegistry.key(method, swagger.getServiceName() + descriptor.getPath(), acceptType);
+        handlers.put(key, handler);
+        return key;
+    }
+
+    /**
+     * Removes the handlers bound by this endpoint, their routes answer 404 until bound again.
+     */
+    void unbind() {
+        handlers.forEach(swagger.getRoutes()::remove);
+        handlers.clear();
+    }
+
     public SparkSwagger and() {
         return swagger;
     }
@@ -66,121 +240,145 @@ public class ApiEndpoint {
 
     public ApiEndpoint get(final MethodDescriptor.Builder descriptorBuilder, Route route) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.GET, descriptorBuilder, route);
-        swagger.getSpark().get(swagger.getServiceName() + descriptor.getPath(), route);
+        route("get", RouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bind("get", descriptor, null, route)));
         return this;
     }
 
     public ApiEndpoint post(final MethodDescriptor.Builder descriptorBuilder, Route route) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.POST, descriptorBuilder, route);
-        swagger.getSpark().post(swagger.getServiceName() + descriptor.getPath(), route);
+        route("post", RouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bind("post", descriptor, null, route)));
+        return this;
+    }
+
+    public <T> ApiEndpoint post(final MethodDescriptor.Builder descriptorBuilder, TypedRoute<T> route) {
+        MethodDescriptor descriptor = bindDescription(HttpMethod.POST, descriptorBuilder, route);
+        route("post", RouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bind("post", descriptor, null, typed(descriptor, route))));
         return this;
     }
 
     public ApiEndpoint put(final MethodDescriptor.Builder descriptorBuilder, Route route) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.PUT, descriptorBuilder, route);
-        swagger.getSpark().put(swagger.getServiceName() + descriptor.getPath(), route);
+        route("put", RouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bind("put", descriptor, null, route)));
+        return this;
+    }
+
+    public <T> ApiEndpoint put(final MethodDescriptor.Builder descriptorBuilder, TypedRoute<T> route) {
+        MethodDescriptor descriptor = bindDescription(HttpMethod.PUT, descriptorBuilder, route);
+        route("put", RouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bind("put", descriptor, null, typed(descriptor, route))));
         return this;
     }
 
     public ApiEndpoint patch(final MethodDescriptor.Builder descriptorBuilder, Route route) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.PATCH, descriptorBuilder, route);
-        swagger.getSpark().patch(swagger.getServiceName() + descriptor.getPath(), route);
+        route("patch", RouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bind("patch", descriptor, null, route)));
+        return this;
+    }
+
+    public <T> ApiEndpoint patch(final MethodDescriptor.Builder descriptorBuilder, TypedRoute<T> route) {
+        MethodDescriptor descriptor = bindDescription(HttpMethod.PATCH, descriptorBuilder, route);
+        route("patch", RouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bind("patch", descriptor, null, typed(descriptor, route))));
         return this;
     }
 
     public ApiEndpoint delete(final MethodDescriptor.Builder descriptorBuilder, Route route) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.DELETE, descriptorBuilder, route);
-        swagger.getSpark().delete(swagger.getServiceName() + descriptor.getPath(), route);
+        route("delete", RouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bind("delete", descriptor, null, route)));
         return this;
     }
 
     public ApiEndpoint head(final MethodDescriptor.Builder descriptorBuilder, Route route) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.HEAD, descriptorBuilder, route);
-        swagger.getSpark().head(swagger.getServiceName() + descriptor.getPath(), route);
+        route("head", RouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bind("head", descriptor, null, route)));
         return this;
     }
 
     public ApiEndpoint trace(final MethodDescriptor.Builder descriptorBuilder, Route route) {
         MethodDescriptor descriptor = bindDescription(null, descriptorBuilder, route);
-        swagger.getSpark().trace(swagger.getServiceName() + descriptor.getPath(), route);
+        route("trace", RouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bind("trace", descriptor, null, route)));
         return this;
     }
 
     public ApiEndpoint connect(final MethodDescriptor.Builder descriptorBuilder, Route route) {
         MethodDescriptor descriptor = bindDescription(null, descriptorBuilder, route);
-        swagger.getSpark().connect(swagger.getServiceName() + descriptor.getPath(), route);
+        route("connect", RouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bind("connect", descriptor, null, route)));
         return this;
     }
 
     public ApiEndpoint options(final MethodDescriptor.Builder descriptorBuilder, Route route) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.OPTIONS, descriptorBuilder, route);
-        swagger.getSpark().options(swagger.getServiceName() + descriptor.getPath(), route);
+        route("options", RouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bind("options", descriptor, null, route)));
         return this;
     }
 
     public ApiEndpoint before(final MethodDescriptor.Builder descriptorBuilder, Filter filter) {
         MethodDescriptor descriptor = bindDescription(null, descriptorBuilder);
-        swagger.getSpark().before(swagger.getServiceName() + descriptor.getPath(), filter);
+        Filter slot = bindFilter("before", descriptor, null, filter);
+        if (claim("before", swagger.getServiceName() + descriptor.getPath(), null)) {
+            swagger.getSpark().before(swagger.getServiceName() + descriptor.getPath(), slot);
+        }
         return this;
     }
 
     public ApiEndpoint after(final MethodDescriptor.Builder descriptorBuilder, Filter filter) {
         MethodDescriptor descriptor = bindDescription(null, descriptorBuilder);
-        swagger.getSpark().after(swagger.getServiceName() + descriptor.getPath(), filter);
+        Filter slot = bindFilter("after", descriptor, null, filter);
+        if (claim("after", swagger.getServiceName() + descriptor.getPath(), null)) {
+            swagger.getSpark().after(swagger.getServiceName() + descriptor.getPath(), slot);
+        }
         return this;
     }
 
     public ApiEndpoint get(final MethodDescriptor.Builder descriptorBuilder, String acceptType, Route route) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.GET, descriptorBuilder, route);
-        swagger.getSpark().get(swagger.getServiceName() + descriptor.getPath(), acceptType, route);
+        route("get", RouteImpl.create(swagger.getServiceName() + descriptor.getPath(), acceptType, bind("get", descriptor, acceptType, route)));
         return this;
     }
 
     public ApiEndpoint post(final MethodDescriptor.Builder descriptorBuilder, String acceptType, Route route) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.POST, descriptorBuilder, route);
-        swagger.getSpark().post(swagger.getServiceName() + descriptor.getPath(), acceptType, route);
+        route("post", RouteImpl.create(swagger.getServiceName() + descriptor.getPath(), acceptType, bind("post", descriptor, acceptType, route)));
         return this;
     }
 
     public ApiEndpoint put(final MethodDescriptor.Builder descriptorBuilder, String acceptType, Route route) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.PUT, descriptorBuilder, route);
-        swagger.getSpark().put(swagger.getServiceName() + descriptor.getPath(), acceptType, route);
+        route("put", RouteImpl.create(swagger.getServiceName() + descriptor.getPath(), acceptType, bind("put", descriptor, acceptType, route)));
         return this;
     }
 
     public ApiEndpoint patch(final MethodDescriptor.Builder descriptorBuilder, String acceptType, Route route) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.PATCH, descriptorBuilder, route);
-        swagger.getSpark().patch(swagger.getServiceName() + descriptor.getPath(), acceptType, route);
+        route("patch", RouteImpl.create(swagger.getServiceName() + descriptor.getPath(), acceptType, bind("patch", descriptor, acceptType, route)));
         return this;
     }
 
     public ApiEndpoint delete(final MethodDescriptor.Builder descriptorBuilder, String acceptType, Route route) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.DELETE, descriptorBuilder, route);
-        swagger.getSpark().delete(swagger.getServiceName() + descriptor.getPath(), acceptType, route);
+        route("delete", RouteImpl.create(swagger.getServiceName() + descriptor.getPath(), acceptType, bind("delete", descriptor, acceptType, route)));
         return this;
     }
 
     public ApiEndpoint head(final MethodDescriptor.Builder descriptorBuilder, String acceptType, Route route) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.HEAD, descriptorBuilder);
-        swagger.getSpark().head(swagger.getServiceName() + descriptor.getPath(), acceptType, route);
+        route("head", RouteImpl.create(swagger.getServiceName() + descriptor.getPath(), acceptType, bind("head", descriptor, acceptType, route)));
         return this;
     }
 
     public ApiEndpoint trace(final MethodDescriptor.Builder descriptorBuilder, String acceptType, Route route) {
         MethodDescriptor descriptor = bindDescription(null, descriptorBuilder);
-        swagger.getSpark().trace(swagger.getServiceName() + descriptor.getPath(), acceptType, route);
+        route("trace", RouteImpl.create(swagger.getServiceName() + descriptor.getPath(), acceptType, bind("trace", descriptor, acceptType, route)));
         return this;
     }
 
     public ApiEndpoint connect(final MethodDescriptor.Builder descriptorBuilder, String acceptType, Route route) {
         MethodDescriptor descriptor = bindDescription(null, descriptorBuilder);
-        swagger.getSpark().connect(swagger.getServiceName() + descriptor.getPath(), acceptType, route);
+        route("connect", RouteImpl.create(swagger.getServiceName() + descriptor.getPath(), acceptType, bind("connect", descriptor, acceptType, route)));
         return this;
     }
 
     public ApiEndpoint options(final MethodDescriptor.Builder descriptorBuilder, String acceptType, Route route) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.OPTIONS, descriptorBuilder);
-        swagger.getSpark().options(swagger.getServiceName() + descriptor.getPath(), acceptType, route);
+        route("options", RouteImpl.create(swagger.getServiceName() + descriptor.getPath(), acceptType, bind("options", descriptor, acceptType, route)));
         return this;
     }
 
@@ -196,13 +394,19 @@ public class ApiEndpoint {
 
     public ApiEndpoint before(final MethodDescriptor.Builder descriptorBuilder, String acceptType, Filter filter) {
         MethodDescriptor descriptor = bindDescription(null, descriptorBuilder);
-        swagger.getSpark().before(swagger.getServiceName() + descriptor.getPath(), acceptType, filter);
+        Filter slot = bindFilter("before", descriptor, acceptType, filter);
+        if (claim("before", swagger.getServiceName() + descriptor.getPath(), acceptType)) {
+            swagger.getSpark().before(swagger.getServiceName() + descriptor.getPath(), acceptType, slot);
+        }
         return this;
     }
 
     public ApiEndpoint after(final MethodDescriptor.Builder descriptorBuilder, String acceptType, Filter filter) {
         MethodDescriptor descriptor = bindDescription(null, descriptorBuilder);
-        swagger.getSpark().after(swagger.getServiceName() + descriptor.getPath(), acceptType, filter);
+        Filter slot = bindFilter("after", descriptor, acceptType, filter);
+        if (claim("after", swagger.getServiceName() + descriptor.getPath(), acceptType)) {
+            swagger.getSpark().after(swagger.getServiceName() + descriptor.getPath(), acceptType, slot);
+        }
         return this;
     }
 
@@ -213,223 +417,226 @@ public class ApiEndpoint {
 
     public ApiEndpoint afterAfter(final MethodDescriptor.Builder descriptorBuilder, Filter filter) {
         MethodDescriptor descriptor = bindDescription(null, descriptorBuilder);
-        swagger.getSpark().afterAfter(swagger.getServiceName() + descriptor.getPath(), filter);
+        Filter slot = bindFilter("afterAfter", descriptor, null, filter);
+        if (claim("afterAfter", swagger.getServiceName() + descriptor.getPath(), null)) {
+            swagger.getSpark().afterAfter(swagger.getServiceName() + descriptor.getPath(), slot);
+        }
         return this;
     }
 
     public ApiEndpoint get(final MethodDescriptor.Builder descriptorBuilder, TemplateViewRoute route, TemplateEngine engine) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.GET, descriptorBuilder);
-        swagger.getSpark().get(swagger.getServiceName() + descriptor.getPath(), route, engine);
+        route("get", template("get", descriptor, null, route, engine));
         return this;
     }
 
     public ApiEndpoint get(final MethodDescriptor.Builder descriptorBuilder, String acceptType, TemplateViewRoute route, TemplateEngine engine) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.GET, descriptorBuilder);
-        swagger.getSpark().get(swagger.getServiceName() + descriptor.getPath(), acceptType, route, engine);
+        route("get", template("get", descriptor, acceptType, route, engine));
         return this;
     }
 
     public ApiEndpoint post(final MethodDescriptor.Builder descriptorBuilder, TemplateViewRoute route, TemplateEngine engine) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.POST, descriptorBuilder);
-        swagger.getSpark().post(swagger.getServiceName() + descriptor.getPath(), route, engine);
+        route("post", TemplateViewRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bindTemplate("post", descriptor, null, route), engine));
         return this;
     }
 
     public ApiEndpoint post(final MethodDescriptor.Builder descriptorBuilder, String acceptType, TemplateViewRoute route, TemplateEngine engine) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.POST, descriptorBuilder);
-        swagger.getSpark().post(swagger.getServiceName() + descriptor.getPath(), acceptType, route, engine);
+        route("post", TemplateViewRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), acceptType, bindTemplate("post", descriptor, acceptType, route), engine));
         return this;
     }
 
     public ApiEndpoint put(final MethodDescriptor.Builder descriptorBuilder, TemplateViewRoute route, TemplateEngine engine) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.PUT, descriptorBuilder);
-        swagger.getSpark().put(swagger.getServiceName() + descriptor.getPath(), route, engine);
+        route("put", TemplateViewRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bindTemplate("put", descriptor, null, route), engine));
         return this;
     }
 
     public ApiEndpoint put(final MethodDescriptor.Builder descriptorBuilder, String acceptType, TemplateViewRoute route, TemplateEngine engine) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.PUT, descriptorBuilder);
-        swagger.getSpark().put(swagger.getServiceName() + descriptor.getPath(), acceptType, route, engine);
+        route("put", TemplateViewRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), acceptType, bindTemplate("put", descriptor, acceptType, route), engine));
         return this;
     }
 
     public ApiEndpoint delete(final MethodDescriptor.Builder descriptorBuilder, TemplateViewRoute route, TemplateEngine engine) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.DELETE, descriptorBuilder);
-        swagger.getSpark().delete(swagger.getServiceName() + descriptor.getPath(), route, engine);
+        route("delete", TemplateViewRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bindTemplate("delete", descriptor, null, route), engine));
         return this;
     }
 
     public ApiEndpoint delete(final MethodDescriptor.Builder descriptorBuilder, String acceptType, TemplateViewRoute route, TemplateEngine engine) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.DELETE, descriptorBuilder);
-        swagger.getSpark().delete(swagger.getServiceName() + descriptor.getPath(), acceptType, route, engine);
+        route("delete", TemplateViewRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), acceptType, bindTemplate("delete", descriptor, acceptType, route), engine));
         return this;
     }
 
     public ApiEndpoint patch(final MethodDescriptor.Builder descriptorBuilder, TemplateViewRoute route, TemplateEngine engine) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.PATCH, descriptorBuilder);
-        swagger.getSpark().patch(swagger.getServiceName() + descriptor.getPath(), route, engine);
+        route("patch", TemplateViewRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bindTemplate("patch", descriptor, null, route), engine));
         return this;
     }
 
     public ApiEndpoint patch(final MethodDescriptor.Builder descriptorBuilder, String acceptType, TemplateViewRoute route, TemplateEngine engine) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.PATCH, descriptorBuilder);
-        swagger.getSpark().patch(swagger.getServiceName() + descriptor.getPath(), acceptType, route, engine);
+        route("patch", TemplateViewRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), acceptType, bindTemplate("patch", descriptor, acceptType, route), engine));
         return this;
     }
 
     public ApiEndpoint head(final MethodDescriptor.Builder descriptorBuilder, TemplateViewRoute route, TemplateEngine engine) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.HEAD, descriptorBuilder);
-        swagger.getSpark().head(swagger.getServiceName() + descriptor.getPath(), route, engine);
+        route("head", TemplateViewRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bindTemplate("head", descriptor, null, route), engine));
         return this;
     }
 
     public ApiEndpoint head(final MethodDescriptor.Builder descriptorBuilder, String acceptType, TemplateViewRoute route, TemplateEngine engine) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.HEAD, descriptorBuilder);
-        swagger.getSpark().head(swagger.getServiceName() + descriptor.getPath(), acceptType, route, engine);
+        route("head", TemplateViewRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), acceptType, bindTemplate("head", descriptor, acceptType, route), engine));
         return this;
     }
 
     public ApiEndpoint trace(final MethodDescriptor.Builder descriptorBuilder, TemplateViewRoute route, TemplateEngine engine) {
         MethodDescriptor descriptor = bindDescription(null, descriptorBuilder);
-        swagger.getSpark().trace(swagger.getServiceName() + descriptor.getPath(), route, engine);
+        route("trace", TemplateViewRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bindTemplate("trace", descriptor, null, route), engine));
         return this;
     }
 
     public ApiEndpoint trace(final MethodDescriptor.Builder descriptorBuilder, String acceptType, TemplateViewRoute route, TemplateEngine engine) {
         MethodDescriptor descriptor = bindDescription(null, descriptorBuilder);
-        swagger.getSpark().trace(swagger.getServiceName() + descriptor.getPath(), acceptType, route, engine);
+        route("trace", TemplateViewRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), acceptType, bindTemplate("trace", descriptor, acceptType, route), engine));
         return this;
     }
 
     public ApiEndpoint connect(final MethodDescriptor.Builder descriptorBuilder, TemplateViewRoute route, TemplateEngine engine) {
         MethodDescriptor descriptor = bindDescription(null, descriptorBuilder);
-        swagger.getSpark().connect(swagger.getServiceName() + descriptor.getPath(), route, engine);
+        route("connect", TemplateViewRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bindTemplate("connect", descriptor, null, route), engine));
         return this;
     }
 
     public ApiEndpoint connect(final MethodDescriptor.Builder descriptorBuilder, String acceptType, TemplateViewRoute route, TemplateEngine engine) {
         MethodDescriptor descriptor = bindDescription(null, descriptorBuilder);
-        swagger.getSpark().connect(swagger.getServiceName() + descriptor.getPath(), acceptType, route, engine);
+        route("connect", TemplateViewRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), acceptType, bindTemplate("connect", descriptor, acceptType, route), engine));
         return this;
     }
 
     public ApiEndpoint options(final MethodDescriptor.Builder descriptorBuilder, TemplateViewRoute route, TemplateEngine engine) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.OPTIONS, descriptorBuilder);
-        swagger.getSpark().options(swagger.getServiceName() + descriptor.getPath(), route, engine);
+        route("options", TemplateViewRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bindTemplate("options", descriptor, null, route), engine));
         return this;
     }
 
     public ApiEndpoint options(final MethodDescriptor.Builder descriptorBuilder, String acceptType, TemplateViewRoute route, TemplateEngine engine) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.OPTIONS, descriptorBuilder);
-        swagger.getSpark().options(swagger.getServiceName() + descriptor.getPath(), acceptType, route, engine);
+        route("options", TemplateViewRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), acceptType, bindTemplate("options", descriptor, acceptType, route), engine));
         return this;
     }
 
     public ApiEndpoint get(final MethodDescriptor.Builder descriptorBuilder, Route route, ResponseTransformer transformer) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.GET, descriptorBuilder);
-        swagger.getSpark().get(swagger.getServiceName() + descriptor.getPath(), route, transformer);
+        route("get", transformed("get", descriptor, null, route, transformer));
         return this;
     }
 
     public ApiEndpoint get(final MethodDescriptor.Builder descriptorBuilder, String acceptType, Route route, ResponseTransformer transformer) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.GET, descriptorBuilder, route);
-        swagger.getSpark().get(swagger.getServiceName() + descriptor.getPath(), acceptType, route, transformer);
+        route("get", transformed("get", descriptor, acceptType, route, transformer));
         return this;
     }
 
     public ApiEndpoint post(final MethodDescriptor.Builder descriptorBuilder, Route route, ResponseTransformer transformer) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.POST, descriptorBuilder, route);
-        swagger.getSpark().post(swagger.getServiceName() + descriptor.getPath(), route, transformer);
+        route("post", ResponseTransformerRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bind("post", descriptor, null, route), transformer));
         return this;
     }
 
     public ApiEndpoint post(final MethodDescriptor.Builder descriptorBuilder, String acceptType, Route route, ResponseTransformer transformer) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.POST, descriptorBuilder, route);
-        swagger.getSpark().post(swagger.getServiceName() + descriptor.getPath(), acceptType, route, transformer);
+        route("post", ResponseTransformerRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), acceptType, bind("post", descriptor, acceptType, route), transformer));
         return this;
     }
 
     public ApiEndpoint put(final MethodDescriptor.Builder descriptorBuilder, Route route, ResponseTransformer transformer) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.PUT, descriptorBuilder, route);
-        swagger.getSpark().put(swagger.getServiceName() + descriptor.getPath(), route, transformer);
+        route("put", ResponseTransformerRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bind("put", descriptor, null, route), transformer));
         return this;
     }
 
     public ApiEndpoint put(final MethodDescriptor.Builder descriptorBuilder, String acceptType, Route route, ResponseTransformer transformer) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.PUT, descriptorBuilder, route);
-        swagger.getSpark().put(swagger.getServiceName() + descriptor.getPath(), acceptType, route, transformer);
+        route("put", ResponseTransformerRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), acceptType, bind("put", descriptor, acceptType, route), transformer));
         return this;
     }
 
     public ApiEndpoint delete(final MethodDescriptor.Builder descriptorBuilder, Route route, ResponseTransformer transformer) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.DELETE, descriptorBuilder, route);
-        swagger.getSpark().delete(swagger.getServiceName() + descriptor.getPath(), route, transformer);
+        route("delete", ResponseTransformerRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bind("delete", descriptor, null, route), transformer));
         return this;
     }
 
     public ApiEndpoint delete(final MethodDescriptor.Builder descriptorBuilder, String acceptType, Route route, ResponseTransformer transformer) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.DELETE, descriptorBuilder, route);
-        swagger.getSpark().delete(swagger.getServiceName() + descriptor.getPath(), acceptType, route, transformer);
+        route("delete", ResponseTransformerRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), acceptType, bind("delete", descriptor, acceptType, route), transformer));
         return this;
     }
 
     public ApiEndpoint head(final MethodDescriptor.Builder descriptorBuilder, Route route, ResponseTransformer transformer) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.HEAD, descriptorBuilder);
-        swagger.getSpark().head(swagger.getServiceName() + descriptor.getPath(), route, transformer);
+        route("head", ResponseTransformerRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bind("head", descriptor, null, route), transformer));
         return this;
     }
 
     public ApiEndpoint head(final MethodDescriptor.Builder descriptorBuilder, String acceptType, Route route, ResponseTransformer transformer) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.HEAD, descriptorBuilder);
-        swagger.getSpark().head(swagger.getServiceName() + descriptor.getPath(), acceptType, route, transformer);
+        route("head", ResponseTransformerRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), acceptType, bind("head", descriptor, acceptType, route), transformer));
         return this;
     }
 
     public ApiEndpoint connect(final MethodDescriptor.Builder descriptorBuilder, Route route, ResponseTransformer transformer) {
         MethodDescriptor descriptor = bindDescription(null, descriptorBuilder);
-        swagger.getSpark().connect(swagger.getServiceName() + descriptor.getPath(), route, transformer);
+        route("connect", ResponseTransformerRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bind("connect", descriptor, null, route), transformer));
         return this;
     }
 
     public ApiEndpoint connect(final MethodDescriptor.Builder descriptorBuilder, String acceptType, Route route, ResponseTransformer transformer) {
         MethodDescriptor descriptor = bindDescription(null, descriptorBuilder);
-        swagger.getSpark().connect(swagger.getServiceName() + descriptor.getPath(), acceptType, route, transformer);
+        route("connect", ResponseTransformerRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), acceptType, bind("connect", descriptor, acceptType, route), transformer));
         return this;
     }
 
     public ApiEndpoint trace(final MethodDescriptor.Builder descriptorBuilder, Route route, ResponseTransformer transformer) {
         MethodDescriptor descriptor = bindDescription(null, descriptorBuilder);
-        swagger.getSpark().trace(swagger.getServiceName() + descriptor.getPath(), route, transformer);
+        route("trace", ResponseTransformerRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bind("trace", descriptor, null, route), transformer));
         return this;
     }
 
     public ApiEndpoint trace(final MethodDescriptor.Builder descriptorBuilder, String acceptType, Route route, ResponseTransformer transformer) {
         MethodDescriptor descriptor = bindDescription(null, descriptorBuilder);
-        swagger.getSpark().trace(swagger.getServiceName() + descriptor.getPath(), acceptType, route, transformer);
+        route("trace", ResponseTransformerRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), acceptType, bind("trace", descriptor, acceptType, route), transformer));
         return this;
     }
 
     public ApiEndpoint options(final MethodDescriptor.Builder descriptorBuilder, Route route, ResponseTransformer transformer) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.OPTIONS, descriptorBuilder);
-        swagger.getSpark().options(swagger.getServiceName() + descriptor.getPath(), route, transformer);
+        route("options", ResponseTransformerRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bind("options", descriptor, null, route), transformer));
         return this;
     }
 
     public ApiEndpoint options(final MethodDescriptor.Builder descriptorBuilder, String acceptType, Route route, ResponseTransformer transformer) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.OPTIONS, descriptorBuilder);
-        swagger.getSpark().options(swagger.getServiceName() + descriptor.getPath(), acceptType, route, transformer);
+        route("options", ResponseTransformerRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), acceptType, bind("options", descriptor, acceptType, route), transformer));
         return this;
     }
 
     public ApiEndpoint patch(final MethodDescriptor.Builder descriptorBuilder, Route route, ResponseTransformer transformer) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.PATCH, descriptorBuilder);
-        swagger.getSpark().patch(swagger.getServiceName() + descriptor.getPath(), route, transformer);
+        route("patch", ResponseTransformerRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), bind("patch", descriptor, null, route), transformer));
         return this;
     }
 
     public ApiEndpoint patch(final MethodDescriptor.Builder descriptorBuilder, String acceptType, Route route, ResponseTransformer transformer) {
         MethodDescriptor descriptor = bindDescription(HttpMethod.PATCH, descriptorBuilder);
-        swagger.getSpark().patch(swagger.getServiceName() + descriptor.getPath(), acceptType, route, transformer);
+        route("patch", ResponseTransformerRouteImpl.create(swagger.getServiceName() + descriptor.getPath(), acceptType, bind("patch", descriptor, acceptType, route), transformer));
         return this;
     }
 }
@@ -30,7 +30,16 @@ data class Config(
         val showExtensions: Boolean = true,
         val showCommonExtensions: Boolean = true,
         val operationsSorter: String = "alpha",
-        val tagsSorter: String = "alpha"
+        val tagsSorter: String = "alpha",
+        val extractUi: Boolean = true,
+        val extractSourceMaps: Boolean = false,
+        val extractAllThemes: Boolean = false,
+        val prebuiltSpec: Boolean = true,
+        val validateParams: Boolean = false,
+        val metrics: Boolean = false,
+        val metricsPath: String = "/metrics",
+        val cors: ConfigCors = ConfigCors(),
+        val dispatchRoutes: Boolean = false
 )
 
 
@@ -44,6 +53,15 @@ data class ConfigLicense(
         val name: String,
         val url: String)
 
+data class ConfigCors(
+        val enabled: Boolean = true,
+        val allowedOrigins: List<String> = listOf("*"),
+        val allowedHeaders: List<String> = emptyList(),
+        val exposedHeaders: List<String> = emptyList(),
+        val allowCredentials: Boolean = false,
+        val maxAge: Int = 600
+)
+
 data class Project(
         val groupId: String,
         val artifactId: String
@@ -0,0 +1,135 @@
+package com.beerboy.ss;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import spark.Filter;
+import spark.Request;
+import spark.Response;
+
+/**
+ * Before filters of the endpoints, run by a single Spark filter. Each endpoint filter applies to the paths under
+ * the endpoint path, as a Spark filter on {@code path + "/*"} would, and is found by walking a {@link PathTree} of
+ * endpoint paths. Matching costs one lookup per segment of the request path, whatever the number of endpoints.
+ * <p>
+ * Filters matching the same request run in the order they were added.
+ *
+ * @author manusant
+ */
+final class FilterDispatcher implements Filter {
+
+    private static final Comparator<Match> ORDER = Comparator.comparingLong(match -> match.entry.sequence);
+
+    private final PathTree<Entry[]> tree = new PathTree<>(false);
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Adds the filter of an endpoint, applied to the paths under the given one.
+     */
+    void add(final String path, final Filter filter, final Object owner) {
+        Entry entry = new Entry(filter, owner, MatchedRequest.names(path + "/*"), sequence.incrementAndGet());
+        tree.update(path, entries -> {
+            if (entries == null) {
+                return new Entry[]{entry};
+            }
+            Entry[] next = Arrays.copyOf(entries, entries.length + 1);
+            next[entries.length] = entry;
+            return next;
+        });
+    }
+
+    /**
+     * Removes the filters an endpoint added on a path.
+     */
+    void remove(final String path, final Object owner) {
+        tree.update(path, entries -> {
+            if (entries == null) {
+                return null;
+            }
+            Entry[] next = Arrays.stream(entries).filter(entry -> entry.owner != owner).toArray(Entry[]::new);
+            return next.length == 0 ? null : next;
+        });
+    }
+
+    @Override
+    public void handle(final Request request, final Response response) throws Exception {
+        String path = request.uri();
+        int[] bounds = new int[PathTree.maxCaptures(path) * 2];
+        List<Match> matches = collect(tree.getRoot(), path, PathTree.skipSlashes(path, 0), bounds, 0, null);
+        if (matches == null) {
+            return;
+        }
+        if (matches.size() > 1) {
+            matches.sort(ORDER);
+        }
+        for (Match match : matches) {
+            match.entry.filter.handle(new MatchedRequest(request, path, match.entry.names, match.bounds), response);
+        }
+    }
+
+    private static List<Match> collect(final PathTree.Node<Entry[]> node, final String path, final int start, final int[] bounds, final int capture, List<Match> matches) {
+        Entry[] entries = node.getValue();
+        // Under the endpoint path, or the endpoint path with a trailing slash
+        if (entries != null && (start < path.length() || path.endsWith("/"))) {
+            for (Entry entry : entries) {
+                int[] matchBounds = Arrays.copyOf(bounds, capture * 2 + 2);
+                matchBounds[capture * 2] = start;
+                matchBounds[capture * 2 + 1] = path.length();
+                if (matches == null) {
+                    matches = new ArrayList<>(2);
+                }
+                matches.add(new Match(entry, matchBounds));
+            }
+        }
+        if (start >= path.length()) {
+            return matches;
+        }
+        int end = PathTree.segmentEnd(path, start);
+        int next = PathTree.skipSlashes(path, end);
+        PathTree.Node<Entry[]> child = node.staticChild(path, start, end);
+        if (child != null) {
+            matches = collect(child, path, next, bounds, capture, matches);
+        }
+        // Parameters and splats within an endpoint path match a single segment
+        matches = collectCapture(node.getParam(), path, start, end, next, bounds, capture, matches);
+        return collectCapture(node.getSplat(), path, start, end, next, bounds, capture, matches);
+    }
+
+    private static List<Match> collectCapture(final PathTree.Node<Entry[]> node, final String path, final int start, final int end, final int next, final int[] bounds, final int capture, final List<Match> matches) {
+        if (node == null) {
+            return matches;
+        }
+        bounds[capture * 2] = start;
+        bounds[capture * 2 + 1] = end;
+        return collect(node, path, next, bounds, capture + 1, matches);
+    }
+
+    private static final class Entry {
+
+        private final Filter filter;
+        private final Object owner;
+        private final String[] names;
+        private final long sequence;
+
+        private Entry(final Filter filter, final Object owner, final String[] names, final long sequence) {
+            this.filter = filter;
+            this.owner = owner;
+            this.names = names;
+            this.sequence = sequence;
+        }
+    }
+
+    private static final class Match {
+
+        private final Entry entry;
+        private final int[] bounds;
+
+        private Match(final Entry entry, final int[] bounds) {
+            this.entry = entry;
+            this.bounds = bounds;
+        }
+    }
+}
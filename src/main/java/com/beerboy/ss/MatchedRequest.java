@@ -0,0 +1,268 @@
+package com.beerboy.ss;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+
+import spark.QueryParamsMap;
+import spark.Request;
+import spark.Session;
+import spark.utils.urldecoding.UrlDecode;
+
+/**
+ * Request handed to a handler matched by {@link PathTree} rather than by Spark. Everything is delegated to the
+ * Spark request but the parameters and splats, which are those of the matched path. They are kept as bounds in the
+ * request path and only decoded when asked for.
+ *
+ * @author manusant
+ */
+final class MatchedRequest extends Request {
+
+    private final Request delegate;
+    private final String path;
+    // Parameter names of the matched path in capture order, ":name" in lower case or null for a splat
+    private final String[] names;
+    private final int[] bounds;
+    private Map<String, String> params;
+
+    MatchedRequest(final Request delegate, final String path, final String[] names, final int[] bounds) {
+        this.delegate = delegate;
+        this.path = path;
+        this.names = names;
+        this.bounds = bounds;
+    }
+
+    /**
+     * Names of the parameters and splats of a path in Spark syntax, in capture order.
+     */
+    static String[] names(final String path) {
+        List<String> names = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (segment.equals("*")) {
+                names.add(null);
+            } else if (segment.startsWith(":")) {
+                names.add(segment.toLowerCase(Locale.ROOT));
+            }
+        }
+        return names.toArray(new String[0]);
+    }
+
+    @Override
+    public Map<String, String> params() {
+        if (params == null) {
+            Map<String, String> values = new HashMap<>();
+            for (int i = 0; i < names.length; i++) {
+                if (names[i] != null) {
+                    values.put(names[i], UrlDecode.path(path, bounds[i * 2], bounds[i * 2 + 1] - bounds[i * 2]));
+                }
+            }
+            params = Collections.unmodifiableMap(values);
+        }
+        return params;
+    }
+
+    @Override
+    public String params(final String param) {
+        if (param == null) {
+            return null;
+        }
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i];
+            // Same as Spark, names are case insensitive and the colon is optional
+            if (name != null && (param.startsWith(":")
+                    ? name.equalsIgnoreCase(param)
+                    : name.length() == param.length() + 1 && name.regionMatches(true, 1, param, 0, param.length()))) {
+                return UrlDecode.path(path, bounds[i * 2], bounds[i * 2 + 1] - bounds[i * 2]);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String[] splat() {
+        List<String> splat = new ArrayList<>();
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] == null) {
+                try {
+                    splat.add(URLDecoder.decode(path.substring(bounds[i * 2], bounds[i * 2 + 1]), "UTF-8"));
+                } catch (UnsupportedEncodingException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return splat.toArray(new String[0]);
+    }
+
+    @Override
+    public String requestMethod() {
+        return delegate.requestMethod();
+    }
+
+    @Override
+    public String scheme() {
+        return delegate.scheme();
+    }
+
+    @Override
+    public String host() {
+        return delegate.host();
+    }
+
+    @Override
+    public String userAgent() {
+        return delegate.userAgent();
+    }
+
+    @Override
+    public int port() {
+        return delegate.port();
+    }
+
+    @Override
+    public String pathInfo() {
+        return delegate.pathInfo();
+    }
+
+    @Override
+    public String servletPath() {
+        return delegate.servletPath();
+    }
+
+    @Override
+    public String contextPath() {
+        return delegate.contextPath();
+    }
+
+    @Override
+    public String url() {
+        return delegate.url();
+    }
+
+    @Override
+    public String contentType() {
+        return delegate.contentType();
+    }
+
+    @Override
+    public String ip() {
+        return delegate.ip();
+    }
+
+    @Override
+    public String body() {
+        return delegate.body();
+    }
+
+    @Override
+    public byte[] bodyAsBytes() {
+        return delegate.bodyAsBytes();
+    }
+
+    @Override
+    public int contentLength() {
+        return delegate.contentLength();
+    }
+
+    @Override
+    public String queryParams(final String queryParam) {
+        return delegate.queryParams(queryParam);
+    }
+
+    @Override
+    public String queryParamOrDefault(final String queryParam, final String defaultValue) {
+        return delegate.queryParamOrDefault(queryParam, defaultValue);
+    }
+
+    @Override
+    public String[] queryParamsValues(final String queryParam) {
+        return delegate.queryParamsValues(queryParam);
+    }
+
+    @Override
+    public String headers(final String header) {
+        return delegate.headers(header);
+    }
+
+    @Override
+    public Set<String> queryParams() {
+        return delegate.queryParams();
+    }
+
+    @Override
+    public Set<String> headers() {
+        return delegate.headers();
+    }
+
+    @Override
+    public String queryString() {
+        return delegate.queryString();
+    }
+
+    @Override
+    public void attribute(final String attribute, final Object value) {
+        delegate.attribute(attribute, value);
+    }
+
+    @Override
+    public <T> T attribute(final String attribute) {
+        return delegate.attribute(attribute);
+    }
+
+    @Override
+    public Set<String> attributes() {
+        return delegate.attributes();
+    }
+
+    @Override
+    public HttpServletRequest raw() {
+        return delegate.raw();
+    }
+
+    @Override
+    public QueryParamsMap queryMap() {
+        return delegate.queryMap();
+    }
+
+    @Override
+    public QueryParamsMap queryMap(final String key) {
+        return delegate.queryMap(key);
+    }
+
+    @Override
+    public Session session() {
+        return delegate.session();
+    }
+
+    @Override
+    public Session session(final boolean create) {
+        return delegate.session(create);
+    }
+
+    @Override
+    public Map<String, String> cookies() {
+        return delegate.cookies();
+    }
+
+    @Override
+    public String cookie(final String name) {
+        return delegate.cookie(name);
+    }
+
+    @Override
+    public String uri() {
+        return delegate.uri();
+    }
+
+    @Override
+    public String protocol() {
+        return delegate.protocol();
+    }
+}
@@ -0,0 +1,139 @@
+package com.beerboy.ss;
+
+import com.beerboy.ss.metrics.LatencyHistogram;
+import com.beerboy.ss.metrics.MetricsRegistry;
+import com.beerboy.ss.metrics.OperationMetrics;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Adds the live latency and throughput of each operation to the served spec, as {@code x-latency-p50},
+ * {@code x-latency-p99} (milliseconds) and {@code x-rps} operation extensions. Annotated versions are rendered at
+ * most once per refresh interval, doc requests in between are served the cached one.
+ *
+ * @author manusant
+ */
+final class MetricsAnnotator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetricsAnnotator.class);
+    private static final long REFRESH_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final MetricsRegistry metrics;
+    private final LongSupplier clock;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile Annotated current;
+
+    MetricsAnnotator(final MetricsRegistry metrics) {
+        this(metrics, System::nanoTime);
+    }
+
+    MetricsAnnotator(final MetricsRegistry metrics, final LongSupplier clock) {
+        this.metrics = metrics;
+        this.clock = clock;
+    }
+
+    /**
+     * Annotated version of a spec snapshot. While another thread refreshes it, the previous annotated version of
+     * the same snapshot is served, or the snapshot as is.
+     */
+    SpecSnapshot annotate(final SpecSnapshot base) {
+        if (base.getSpec() == null) {
+            return base;
+        }
+        Annotated annotated = current;
+        long now = clock.getAsLong();
+        boolean sameBase = annotated != null && annotated.base == base;
+        if (sameBase && now - annotated.takenAt < REFRESH_NANOS) {
+            return annotated.snapshot;
+        }
+        if (!refreshing.compareAndSet(false, true)) {
+            return sameBase ? annotated.snapshot : base;
+        }
+        try {
+            annotated = refresh(base, annotated, now);
+            current = annotated;
+            return annotated.snapshot;
+        } catch (IOException e) {
+            LOGGER.error("Spark-Swagger: Unable to annotate Swagger definitions with metrics", e);
+            return base;
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    private Annotated refresh(final SpecSnapshot base, final Annotated previous, final long now) throws IOException {
+        ObjectMapper mapper = SpecFormat.JSON.getMapper();
+        // The parsed tree of a snapshot is kept across refreshes and copied, it is never annotated itself
+        ObjectNode baseTree = previous != null && previous.base == base ? previous.baseTree : (ObjectNode) mapper.readTree(base.getSpec().getJson());
+        ObjectNode tree = baseTree.deepCopy();
+
+        Map<String, Long> requests = new HashMap<>();
+        JsonNode paths = tree.path("paths");
+        for (OperationMetrics operation : metrics.getOperations()) {
+            long count = operation.getRequests();
+            String key = operation.getMethod() + " " + operation.getPath();
+            requests.put(key, count);
+            JsonNode node = paths.path(operation.getPath()).path(operation.getMethod().toLowerCase(Locale.ROOT));
+            if (count == 0 || !node.isObject()) {
+                continue;
+            }
+            LatencyHistogram latency = operation.getLatency();
+            ObjectNode operationNode = (ObjectNode) node;
+            operationNode.put("x-latency-p50", round(latency.percentile(0.5) / 1000.0, 3));
+            operationNode.put("x-latency-p99", round(latency.percentile(0.99) / 1000.0, 3));
+            operationNode.put("x-rps", round(rate(operation, key, count, previous, now), 2));
+        }
+
+        byte[] json = mapper.writeValueAsBytes(tree);
+        byte[] yaml = SpecFormat.YAML.getMapper().writeValueAsBytes(tree);
+        RenderedSpec spec = new RenderedSpec(SwaggerParser.toJs(json), yaml, json);
+        return new Annotated(base, baseTree, base.annotated(spec), requests, now);
+    }
+
+    /**
+     * Requests per second since the previous refresh, or since the operation was bound on the first one or when
+     * no time elapsed since the previous refresh.
+     */
+    private static double rate(final OperationMetrics operation, final String key, final long count, final Annotated previous, final long now) {
+        Long previousCount = previous != null ? previous.requests.get(key) : null;
+        if (previousCount == null || now == previous.takenAt) {
+            return operation.getRequestRate();
+        }
+        return (count - previousCount) / ((now - previous.takenAt) / 1e9);
+    }
+
+    private static BigDecimal round(final double value, final int scale) {
+        return BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_UP);
+    }
+
+    private static final class Annotated {
+
+        private final SpecSnapshot base;
+        private final ObjectNode baseTree;
+        private final SpecSnapshot snapshot;
+        private final Map<String, Long> requests;
+        private final long takenAt;
+
+        private Annotated(final SpecSnapshot base, final ObjectNode baseTree, final SpecSnapshot snapshot, final Map<String, Long> requests, final long takenAt) {
+            this.base = base;
+            this.baseTree = baseTree;
+            this.snapshot = snapshot;
+            this.requests = requests;
+            this.takenAt = takenAt;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.beerboy.ss;
+
+import java.util.function.BiPredicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Tree of route paths in Spark syntax, one level per path segment. Static segments are looked up in an open
+ * addressing table hashed straight from the request path, so a lookup costs one probe per segment whatever the
+ * number of paths, without splitting the request path. Parameter and splat segments are held apart from static
+ * ones.
+ * <p>
+ * Repeated slashes are not significant. By default a trailing slash is, as when Spark matches routes: a path ending
+ * with a slash and the same path without one are kept apart, and each only matches requests ending the same way.
+ * Paths ending with a splat match either.
+ * <p>
+ * Updates are serialized and copy on write, lookups are lock-free. Shared by the route and filter dispatchers and
+ * the CORS policy, it is not meant to be used by applications.
+ *
+ * @author manusant
+ */
+public final class PathTree<V> {
+
+    private final Node<V> root = new Node<>();
+    private final boolean trailingSlash;
+
+    public PathTree() {
+        this(true);
+    }
+
+    /**
+     * @param trailingSlash whether a trailing slash is significant, otherwise paths match with or without one
+     */
+    public PathTree(final boolean trailingSlash) {
+        this.trailingSlash = trailingSlash;
+    }
+
+    /**
+     * Replaces the value of a path by the result of the given function, which receives null for a new path.
+     */
+    public synchronized void update(final String path, final UnaryOperator<V> update) {
+        Node<V> node = root;
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                node = node.child(segment);
+            }
+        }
+        if (trailingSlash && path.endsWith("/")) {
+            node.slashValue = update.apply(node.slashValue);
+        } else {
+            node.value = update.apply(node.value);
+        }
+    }
+
+    Node<V> getRoot() {
+        return root;
+    }
+
+    /**
+     * Number of parameters and splats a request path may fill, at most one per segment.
+     */
+    public static int maxCaptures(final String path) {
+        int segments = 1;
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) == '/') {
+                segments++;
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Value of the path matching a request path and accepted by the given predicate, null when none is. Static
+     * segments are preferred over parameters, and parameters over splats. The start and end of each parameter or
+     * splat of the matching path are stored in bounds, in path order.
+     */
+    public <K> V find(final String requestPath, final int[] bounds, final BiPredicate<V, K> accept, final K key) {
+        return find(root, requestPath, skipSlashes(requestPath, 0), bounds, 0, accept, key);
+    }
+
+    private <K> V find(final Node<V> node, final String path, final int start, final int[] bounds, final int capture, final BiPredicate<V, K> accept, final K key) {
+        if (start >= path.length()) {
+            V value = trailingSlash && path.endsWith("/") ? node.slashValue : node.value;
+            return value != null && accept.test(value, key) ? value : null;
+        }
+        int end = segmentEnd(path, start);
+        int next = skipSlashes(path, end);
+        Node<V> child = node.children.get(path, start, end);
+        if (child != null) {
+            V value = find(child, path, next, bounds, capture, accept, key);
+            if (value != null) {
+                return value;
+            }
+        }
+        child = node.param;
+        if (child != null) {
+            bounds[capture * 2] = start;
+            bounds[capture * 2 + 1] = end;
+            V value = find(child, path, next, bounds, capture + 1, accept, key);
+            if (value != null) {
+                return value;
+            }
+        }
+        child = node.splat;
+        if (child != null) {
+            bounds[capture * 2] = start;
+            bounds[capture * 2 + 1] = end;
+            V value = find(child, path, next, bounds, capture + 1, accept, key);
+            if (value == null && end < path.length() && child.value != null && accept.test(child.value, key)) {
+                // Trailing splat, matches the rest of the path, or the last segment and a trailing slash
+                if (next < path.length()) {
+                    bounds[capture * 2 + 1] = path.length();
+                }
+                value = child.value;
+            }
+            return value;
+        }
+        return null;
+    }
+
+    static int skipSlashes(final String path, int index) {
+        while (index < path.length() && path.charAt(index) == '/') {
+            index++;
+        }
+        return index;
+    }
+
+    static int segmentEnd(final String path, final int start) {
+        int end = path.indexOf('/', start);
+        return end < 0 ? path.length() : end;
+    }
+
+    static final class Node<V> {
+
+        private volatile Table<V> children = Table.empty();
+        private volatile Node<V> param;
+        private volatile Node<V> splat;
+        private volatile V value;
+        private volatile V slashValue;
+
+        Node<V> staticChild(final String path, final int start, final int end) {
+            return children.get(path, start, end);
+        }
+
+        Node<V> getParam() {
+            return param;
+        }
+
+        Node<V> getSplat() {
+            return splat;
+        }
+
+        V getValue() {
+            return value;
+        }
+
+        private Node<V> child(final String segment) {
+            if (segment.equals("*")) {
+                if (splat == null) {
+                    splat = new Node<>();
+                }
+                return splat;
+            }
+            if (segment.startsWith(":")) {
+                if (param == null) {
+                    param = new Node<>();
+                }
+                return param;
+            }
+            Node<V> child = children.get(segment, 0, segment.length());
+            if (child == null) {
+                child = new Node<>();
+                children = children.with(segment, child);
+            }
+            return child;
+        }
+    }
+
+    /**
+     * Immutable open addressing table of static segments, replaced as a whole when a segment is added.
+     */
+    private static final class Table<V> {
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static final Table<?> EMPTY = new Table<Object>(new String[2], new Node[2], 0);
+
+        private final String[] keys;
+        private final Node<V>[] nodes;
+        private final int size;
+
+        private Table(final String[] keys, final Node<V>[] nodes, final int size) {
+            this.keys = keys;
+            this.nodes = nodes;
+            this.size = size;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <V> Table<V> empty() {
+            return (Table<V>) EMPTY;
+        }
+
+        Node<V> get(final String path, final int start, final int end) {
+            int length = end - start;
+            int mask = keys.length - 1;
+            for (int i = hash(path, start, end) & mask; ; i = (i + 1) & mask) {
+                String key = keys[i];
+                if (key == null) {
+                    return null;
+                }
+                if (key.length() == length && key.regionMatches(0, path, start, length)) {
+                    return nodes[i];
+                }
+            }
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Table<V> with(final String key, final Node<V> node) {
+            // Kept at most half full, so probes stay short and always reach an empty slot
+            int capacity = (size + 1) * 2 > keys.length ? keys.length * 2 : keys.length;
+            String[] nextKeys = new String[capacity];
+            Node<V>[] nextNodes = new Node[capacity];
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) {
+                    put(nextKeys, nextNodes, keys[i], nodes[i]);
+                }
+            }
+            put(nextKeys, nextNodes, key, node);
+            return new Table<>(nextKeys, nextNodes, size + 1);
+        }
+
+        private static <V> void put(final String[] keys, final Node<V>[] nodes, final String key, final Node<V> node) {
+            int mask = keys.length - 1;
+            int i = hash(key, 0, key.length()) & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+        }
+
+        private static int hash(final String value, final int start, final int end) {
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + value.charAt(i);
+            }
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
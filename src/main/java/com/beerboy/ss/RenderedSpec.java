@@ -0,0 +1,48 @@
+package com.beerboy.ss;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Serialized forms of a parsed {@link Swagger} model. All formats are rendered from the same frozen model.
+ *
+ * @author manusant
+ */
+public class RenderedSpec {
+
+    public static final String JS_FILE = "swagger-spec.js";
+    public static final String YAML_FILE = "doc.yaml";
+    public static final String JSON_FILE = "doc.json";
+
+    private final byte[] js;
+    private final byte[] yaml;
+    private final byte[] json;
+    // Document tree of a patched spec, reused by the next patch
+    private final ObjectNode tree;
+
+    public RenderedSpec(final byte[] js, final byte[] yaml, final byte[] json) {
+        this(js, yaml, json, null);
+    }
+
+    RenderedSpec(final byte[] js, final byte[] yaml, final byte[] json, final ObjectNode tree) {
+        this.js = js;
+        this.yaml = yaml;
+        this.json = json;
+        this.tree = tree;
+    }
+
+    public byte[] getJs() {
+        return js;
+    }
+
+    public byte[] getYaml() {
+        return yaml;
+    }
+
+    public byte[] getJson() {
+        return json;
+    }
+
+    ObjectNode getTree() {
+        return tree;
+    }
+}
@@ -0,0 +1,150 @@
+package com.beerboy.ss;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BiPredicate;
+
+import spark.Request;
+import spark.Response;
+import spark.Route;
+import spark.RouteImpl;
+import spark.utils.MimeParse;
+
+/**
+ * Routes of the endpoints, matched by a {@link PathTree} of their paths instead of Spark's list of routes. It is
+ * registered with Spark as a catch-all route of every HTTP method under the service. A request is matched with one
+ * lookup per path segment, whatever the number of routes, and its path parameters are only decoded when the
+ * handler asks for them.
+ * <p>
+ * Requests matching a path but none of its methods are answered with 405 and the allowed methods, other requests
+ * are left unanswered so Spark responds with 404.
+ *
+ * @author manusant
+ */
+final class RouteDispatcher implements Route {
+
+    private static final String METHOD_NOT_ALLOWED = "<html><body><h2>405 Method Not Allowed</h2></body></html>";
+    private static final BiPredicate<Methods, String> HAS_METHOD = (methods, method) -> methods.indexOf(method) >= 0;
+    private static final BiPredicate<Methods, String> ANY = (methods, method) -> true;
+
+    private final PathTree<Methods> tree = new PathTree<>();
+
+    /**
+     * Adds a route, a route of the same method, path and accept type replaces the previous one.
+     */
+    void add(final String method, final RouteImpl route) {
+        Target target = new Target(route, MatchedRequest.names(route.getPath()));
+        tree.update(route.getPath(), methods -> (methods != null ? methods : Methods.EMPTY).with(method.toUpperCase(Locale.ROOT), target));
+    }
+
+    @Override
+    public Object handle(final Request request, final Response response) throws Exception {
+        String path = request.uri();
+        String method = request.requestMethod();
+        int[] bounds = new int[PathTree.maxCaptures(path) * 2];
+        Methods methods = tree.find(path, bounds, HAS_METHOD, method);
+        if (methods == null) {
+            methods = tree.find(path, bounds, ANY, null);
+            if (methods == null) {
+                // Body not set, Spark answers with its not found page
+                return null;
+            }
+            response.status(405);
+            response.header("Allow", methods.allow);
+            return METHOD_NOT_ALLOWED;
+        }
+        Target target = methods.select(methods.indexOf(method), request.raw().getHeader("Accept"));
+        if (target == null) {
+            return null;
+        }
+        return target.route.render(target.route.handle(new MatchedRequest(request, path, target.names, bounds), response));
+    }
+
+    private static final class Target {
+
+        private final RouteImpl route;
+        private final String[] names;
+
+        private Target(final RouteImpl route, final String[] names) {
+            this.route = route;
+            this.names = names;
+        }
+    }
+
+    /**
+     * Routes of a path by method and accept type, immutable.
+     */
+    private static final class Methods {
+
+        private static final Methods EMPTY = new Methods(new String[0], new Target[0][]);
+
+        private final String[] methods;
+        private final Target[][] targets;
+        private final String allow;
+
+        private Methods(final String[] methods, final Target[][] targets) {
+            this.methods = methods;
+            this.targets = targets;
+            List<String> allowed = new ArrayList<>(Arrays.asList(methods));
+            if (allowed.contains("GET") && !allowed.contains("HEAD")) {
+                allowed.add("HEAD");
+            }
+            this.allow = String.join(", ", allowed);
+        }
+
+        /**
+         * Index of the routes of a method, HEAD requests fall back to GET routes as in Spark.
+         */
+        int indexOf(final String method) {
+            for (int i = 0; i < methods.length; i++) {
+                if (methods[i].equals(method)) {
+                    return i;
+                }
+            }
+            return method.equals("HEAD") ? indexOf("GET") : -1;
+        }
+
+        /**
+         * Route of a method for the accept header of a request, picked as Spark does when several routes only
+         * differ by accept type.
+         */
+        Target select(final int index, final String accept) {
+            Target[] candidates = targets[index];
+            if (accept == null || candidates.length == 1 && candidates[0].route.getAcceptType().equals("*/*")) {
+                return candidates[0];
+            }
+            List<String> acceptTypes = new ArrayList<>(candidates.length);
+            for (Target candidate : candidates) {
+                acceptTypes.add(candidate.route.getAcceptType());
+            }
+            String bestMatch = MimeParse.bestMatch(acceptTypes, accept);
+            int match = acceptTypes.indexOf(bestMatch);
+            return match >= 0 ? candidates[match] : null;
+        }
+
+        Methods with(final String method, final Target target) {
+            int index = Arrays.asList(methods).indexOf(method);
+            if (index < 0) {
+                String[] nextMethods = Arrays.copyOf(methods, methods.length + 1);
+                Target[][] nextTargets = Arrays.copyOf(targets, targets.length + 1);
+                nextMethods[methods.length] = method;
+                nextTargets[targets.length] = new Target[]{target};
+                return new Methods(nextMethods, nextTargets);
+            }
+            Target[][] nextTargets = targets.clone();
+            Target[] candidates = targets[index];
+            for (int i = 0; i < candidates.length; i++) {
+                if (candidates[i].route.getAcceptType().equals(target.route.getAcceptType())) {
+                    nextTargets[index] = candidates.clone();
+                    nextTargets[index][i] = target;
+                    return new Methods(methods, nextTargets);
+                }
+            }
+            nextTargets[index] = Arrays.copyOf(candidates, candidates.length + 1);
+            nextTargets[index][candidates.length] = target;
+            return new Methods(methods, nextTargets);
+        }
+    }
+}
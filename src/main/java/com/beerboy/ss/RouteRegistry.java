@@ -0,0 +1,80 @@
+package com.beerboy.ss;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import spark.Filter;
+import spark.Route;
+import spark.Service;
+import spark.TemplateViewRoute;
+
+/**
+ * Current handlers of the routes bound through {@link ApiEndpoint}. Spark cannot remove a route, so what is
+ * registered with Spark is a slot resolving the handler of its route here on every request. Unregistered routes
+ * answer 404 and routes bound again serve the new handler from the slot registered first.
+ *
+ * @author manusant
+ */
+class RouteRegistry {
+
+    private final Service spark;
+    private final ConcurrentHashMap<String, Object> handlers = new ConcurrentHashMap<>();
+    // Keys of the slots registered with Spark
+    private final Set<String> slots = ConcurrentHashMap.newKeySet();
+
+    RouteRegistry(final Service spark) {
+        this.spark = spark;
+    }
+
+    static String key(final String method, final String path, final String acceptType) {
+        return acceptType == null ? method + " " + path : method + " " + path + " " + acceptType;
+    }
+
+    Route route(final String key, final Route route) {
+        handlers.put(key, route);
+        return (request, response) -> {
+            Object current = handlers.get(key);
+            if (current instanceof Route) {
+                return ((Route) current).handle(request, response);
+            }
+            // Halted rather than answered with no body, which Spark would still hand to the response transformer
+            throw spark.halt(404);
+        };
+    }
+
+    TemplateViewRoute template(final String key, final TemplateViewRoute route) {
+        handlers.put(key, route);
+        return (request, response) -> {
+            Object current = handlers.get(key);
+            if (current instanceof TemplateViewRoute) {
+                return ((TemplateViewRoute) current).handle(request, response);
+            }
+            throw spark.halt(404);
+        };
+    }
+
+    Filter filter(final String key, final Filter filter) {
+        handlers.put(key, filter);
+        return (request, response) -> {
+            Object current = handlers.get(key);
+            if (current instanceof Filter) {
+                ((Filter) current).handle(request, response);
+            }
+        };
+    }
+
+    /**
+     * Whether a slot has to be registered with Spark for a route key, true only the first time the key is bound.
+     * Slots of routes bound again already serve their new handler.
+     */
+    boolean claim(final String key) {
+        return slots.add(key);
+    }
+
+    /**
+     * Removes the handler of a route, unless it was replaced in the meantime.
+     */
+    void remove(final String key, final Object handler) {
+        handlers.remove(key, handler);
+    }
+}
@@ -2,28 +2,43 @@ package com.beerboy.ss;
 
 import com.beerboy.spark.typify.provider.GsonProvider;
 import com.beerboy.spark.typify.spec.IgnoreSpec;
+import com.beerboy.ss.cache.ResponseCaches;
+import com.beerboy.ss.codec.JsonCodecs;
 import com.beerboy.ss.conf.IpResolver;
+import com.beerboy.ss.cors.CorsPolicy;
 import com.beerboy.ss.conf.VersionResolver;
 import com.beerboy.ss.descriptor.EndpointDescriptor;
+import com.beerboy.ss.metrics.MetricsRegistry;
 import com.beerboy.ss.model.Contact;
 import com.beerboy.ss.model.ExternalDocs;
 import com.beerboy.ss.model.Info;
 import com.beerboy.ss.model.License;
 import com.beerboy.ss.rest.Endpoint;
 import com.beerboy.ss.rest.EndpointResolver;
+import com.beerboy.ss.ui.AssetRoute;
+import com.beerboy.ss.ui.UiAssets;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 import spark.ExceptionHandler;
 import spark.Filter;
 import spark.HaltException;
+import spark.RouteImpl;
 import spark.Service;
+import spark.route.HttpMethod;
 
 /**
  * @author manusant
@@ -33,59 +48,103 @@ public class SparkSwagger {
     private static final Logger LOGGER = LoggerFactory.getLogger(SparkSwagger.class);
 
     public static final String CONF_FILE_NAME = "spark-swagger.conf";
+    private static final HttpMethod[] DISPATCHED_METHODS = {
+            HttpMethod.get, HttpMethod.post, HttpMethod.put, HttpMethod.patch, HttpMethod.delete,
+            HttpMethod.head, HttpMethod.trace, HttpMethod.connect, HttpMethod.options};
     private String serviceName;
     private String apiPath;
     private Swagger swagger;
     private Service spark;
     private Config config;
     private String version;
+    private volatile UiAssets uiAssets = UiAssets.empty();
+    private final RouteRegistry routes;
+    // Before filters of every endpoint, run by a single Spark filter
+    private final FilterDispatcher filters = new FilterDispatcher();
+    private final AtomicBoolean filtersInstalled = new AtomicBoolean();
+    // Routes of every endpoint, null when routes are left to Spark
+    private final RouteDispatcher dispatcher;
+    private final AtomicBoolean dispatcherInstalled = new AtomicBoolean();
+    private final JsonCodecs codecs = new JsonCodecs();
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final ResponseCaches caches = new ResponseCaches();
+    // Adds operation metrics to the served spec, null when metrics are disabled
+    private final MetricsAnnotator annotator;
+    // Null when CORS is disabled
+    private final CorsPolicy cors;
+    // Served spec, replaced as a whole by writers holding the publish lock
+    private final AtomicReference<SpecSnapshot> snapshot = new AtomicReference<>(SpecSnapshot.EMPTY);
+    private final ReentrantLock publishLock = new ReentrantLock();
+    // Set when methods are bound after the spec was generated
+    private volatile boolean specOutdated;
+    // Endpoints registered at runtime along with the API endpoints they bound
+    private final Map<Endpoint, List<ApiEndpoint>> registered = new ConcurrentHashMap<>();
+    private final ThreadLocal<List<ApiEndpoint>> binding = new ThreadLocal<>();
 
     private SparkSwagger(final Service spark, final String version, final Config config) {
+        this(spark, version, config, false);
+    }
+
+    /**
+     * @param generator binds endpoints for {@link SpecGenerator} only. The host is kept as configured, it is
+     *                  replaced at runtime when the prebuilt spec is loaded, and neither the doc routes nor the UI
+     *                  folder are set up.
+     */
+    private SparkSwagger(final Service spark, final String version, final Config config, final boolean generator) {
         this.spark = spark;
         this.version = version;
         this.swagger = new Swagger();
         this.config = config;
+        this.routes = new RouteRegistry(spark);
+        this.annotator = config.getMetrics() ? new MetricsAnnotator(metrics) : null;
+        this.cors = config.getCors().getEnabled() ? new CorsPolicy(config.getCors()) : null;
+        this.dispatcher = config.getDispatchRoutes() ? new RouteDispatcher() : null;
         this.serviceName = config.getServiceName();
         this.apiPath = this.config.getBasePath();
         this.swagger.setBasePath(this.apiPath);
         this.swagger.setExternalDocs(ExternalDocs.newBuilder().build());
-        this.swagger.setHost(getHost());
+        this.swagger.setHost(generator ? config.getHost() : getHost());
         this.swagger.setInfo(getInfo());
-        configDocRoute();
+        if (!generator) {
+            configDocRoute();
+        }
     }
 
     private void configDocRoute() {
-        // Configure static mapping
-        String basePath = config.getServiceName() + config.getDocPath();
-        String baseUiFolder = SwaggerHammer.getUiFolder(basePath);
-        String uiFolder = baseUiFolder.replaceAll(basePath, "");
-        SwaggerHammer.createDir(SwaggerHammer.getSwaggerUiFolder());
-        SwaggerHammer.createDir(uiFolder);
-        spark.externalStaticFileLocation(uiFolder);
-        LOGGER.debug("Spark-Swagger: UI folder deployed at " + uiFolder);
-
-        // Enable CORS
-        spark.options("/*",
-                (request, response) -> {
-
-                    String accessControlRequestHeaders = request
-                            .headers("Access-Control-Request-Headers");
-                    if (accessControlRequestHeaders != null) {
-                        response.header("Access-Control-Allow-Headers",
-                                accessControlRequestHeaders);
-                    }
-
-                    String accessControlRequestMethod = request
-                            .headers("Access-Control-Request-Method");
-                    if (accessControlRequestMethod != null) {
-                        response.header("Access-Control-Allow-Methods",
-                                accessControlRequestMethod);
-                    }
-                    return "OK";
-                });
-
-        spark.before((request, response) -> response.header("Access-Control-Allow-Origin", "*"));
-        LOGGER.debug("Spark-Swagger: CORS enabled and allow Origin *");
+        if (config.getExtractUi()) {
+            // UI is extracted to a temporary folder and served from memory
+            String basePath = config.getServiceName() + config.getDocPath();
+            String baseUiFolder = SwaggerHammer.getUiFolder(basePath);
+            String uiFolder = baseUiFolder.replaceAll(basePath, "");
+            SwaggerHammer.createDir(SwaggerHammer.getSwaggerUiFolder());
+            SwaggerHammer.createDir(uiFolder);
+            LOGGER.debug("Spark-Swagger: UI folder deployed at " + uiFolder);
+        }
+
+        // Serve generated spec and UI assets from memory, pre-compressed
+        String docRoute = getDocRoute();
+        spark.get(docRoute + RenderedSpec.JS_FILE, new AssetRoute(request -> servedDoc().getJs()));
+        spark.get(docRoute + RenderedSpec.YAML_FILE, new AssetRoute(request -> servedDoc().getYaml()));
+        spark.get(docRoute + RenderedSpec.JSON_FILE, new AssetRoute(request -> servedDoc().getJson()));
+        spark.get(docRoute, new AssetRoute(request -> uiAssets.get(UiAssets.INDEX)));
+        spark.get(docRoute + "*", new AssetRoute(request -> uiAssets.get(request.splat().length > 0 ? request.splat()[0] : null)));
+        LOGGER.debug("Spark-Swagger: Swagger spec and UI served from " + docRoute);
+
+        if (config.getMetrics()) {
+            String metricsRoute = getMetricsRoute();
+            spark.get(metricsRoute, (request, response) -> {
+                response.type("text/plain; version=0.0.4; charset=utf-8");
+                return metrics.toPrometheus();
+            });
+            LOGGER.debug("Spark-Swagger: Operation metrics served from " + metricsRoute);
+        }
+
+        // Enable CORS, with header values computed once and preflights allowed to be cached
+        if (cors != null) {
+            spark.options("/*", cors::preflight);
+            spark.before(cors::apply);
+            LOGGER.debug("Spark-Swagger: CORS enabled for origins " + config.getCors().getAllowedOrigins());
+        }
     }
 
     public String getApiPath() {
@@ -100,6 +159,24 @@ public class SparkSwagger {
         return spark;
     }
 
+    public JsonCodecs getCodecs() {
+        return codecs;
+    }
+
+    /**
+     * Metrics of the operations bound by this instance, recorded when the {@code metrics} setting is enabled.
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Response caches of the GET operations bound with a cache policy, with their hit and miss counts.
+     */
+    public ResponseCaches getCaches() {
+        return caches;
+    }
+
 //    public static SparkSwagger of(final Service spark) {
 //        return new SparkSwagger(spark, null, null);
 //    }
@@ -108,6 +185,10 @@ public class SparkSwagger {
         return new SparkSwagger(spark, null, config);
     }
 
+    static SparkSwagger forGenerator(final Service spark, final Config config) {
+        return new SparkSwagger(spark, null, config, true);
+    }
+
     public SparkSwagger version(final String version) {
         this.version = version;
         return this;
@@ -115,30 +196,222 @@ public class SparkSwagger {
 
     public SparkSwagger ignores(Supplier<IgnoreSpec> confSupplier) {
         this.swagger.ignores(confSupplier.get());
-        GsonProvider.create(confSupplier.get());
+        this.codecs.setGson(GsonProvider.create(confSupplier.get()));
         return this;
     }
 
     public void generateDoc() throws IOException {
-        new SwaggerHammer().prepareUi(config, swagger);
+        publishLock.lock();
+        try {
+            // Methods bound from here on are covered by this render or by the next patch
+            specOutdated = false;
+            snapshot.set(snapshot.get().next(prepareDoc()));
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    private RenderedSpec prepareDoc() throws IOException {
+        SwaggerHammer hammer = new SwaggerHammer();
+        RenderedSpec spec = config.getPrebuiltSpec() ? SwaggerParser.loadPrebuilt(swagger, SpecGenerator.specFolder(config)) : null;
+        if (spec != null) {
+            // Endpoints are in the prebuilt spec, later bound methods are parsed on top of it
+            swagger.markParsed();
+        }
+        if (config.getExtractUi()) {
+            spec = hammer.prepareUi(config, swagger, spec);
+            uiAssets = UiAssets.fromFolder(SwaggerHammer.getUiFolder(config.getServiceName() + config.getDocPath()));
+        } else {
+            if (spec == null) {
+                spec = SwaggerParser.render(swagger);
+            }
+            uiAssets = hammer.loadUi(config);
+        }
+        return spec;
+    }
+
+    /**
+     * Spec served by the doc routes, annotated with operation metrics when they are enabled.
+     */
+    private SpecSnapshot servedDoc() {
+        SpecSnapshot current = currentDoc();
+        return annotator != null ? annotator.annotate(current) : current;
+    }
+
+    /**
+     * Spec served by the doc routes. Methods bound after {@link #generateDoc()} are patched in by the first
+     * request that follows them, see {@link SwaggerParser#patch(RenderedSpec, Swagger)}. Requests never wait
+     * for a patch, while one is in progress the previous version is served.
+     */
+    private SpecSnapshot currentDoc() {
+        if (specOutdated && publishLock.tryLock()) {
+            try {
+                publishDoc(false);
+            } catch (IOException e) {
+                LOGGER.error("Spark-Swagger: Unable to update Swagger definitions", e);
+            } finally {
+                publishLock.unlock();
+            }
+        }
+        return snapshot.get();
+    }
+
+    /**
+     * Publishes a new version of the spec, patched with the methods bound since the current version or rebuilt
+     * from every endpoint. Nothing is published before {@link #generateDoc()}.
+     */
+    private void publishDoc(final boolean rebuild) throws IOException {
+        publishLock.lock();
+        try {
+            SpecSnapshot current = snapshot.get();
+            if (current.getSpec() == null) {
+                return;
+            }
+            // Cleared first, methods bound while publishing are applied by the next version
+            specOutdated = false;
+            RenderedSpec spec = rebuild ? SwaggerParser.render(swagger) : SwaggerParser.patch(current.getSpec(), swagger);
+            if (spec != current.getSpec()) {
+                snapshot.set(current.next(spec));
+                LOGGER.debug("Spark-Swagger: Swagger definitions version " + (current.getVersion() + 1) + " published");
+            }
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    Swagger getSwagger() {
+        return swagger;
+    }
+
+    Config getConfig() {
+        return config;
+    }
+
+    /**
+     * Dispatcher of the routes bound by endpoints, registered with Spark on first use. Null when disabled.
+     */
+    RouteDispatcher getDispatcher() {
+        if (dispatcher != null && !dispatcherInstalled.getAndSet(true)) {
+            // Spark does not match the service root against its splat, routes bound there need their own
+            String root = ("/" + serviceName).replaceAll("/+", "/");
+            String path = (root + "/*").replaceAll("/+", "/");
+            for (HttpMethod method : DISPATCHED_METHODS) {
+                spark.addRoute(method, RouteImpl.create(root, dispatcher));
+                spark.addRoute(method, RouteImpl.create(path, dispatcher));
+            }
+            LOGGER.debug("Spark-Swagger: Endpoint routes dispatched from " + path);
+        }
+        return dispatcher;
+    }
+
+    CorsPolicy getCors() {
+        return cors;
+    }
+
+    RouteRegistry getRoutes() {
+        return routes;
+    }
+
+    void invalidateDoc(final ApiEndpoint endpoint) {
+        this.swagger.invalidate(endpoint);
+        if (snapshot.get().getSpec() != null) {
+            specOutdated = true;
+        }
+    }
+
+    /**
+     * Binds an endpoint at runtime and publishes the resulting spec right away, once {@link #generateDoc()} was
+     * called. Registering an endpoint again replaces the handlers of its routes.
+     */
+    public SparkSwagger register(final Endpoint endpoint) throws IOException {
+        Optional.ofNullable(endpoint).orElseThrow(() -> new IllegalStateException("API Endpoint cannot be null"));
+        // Held while binding, so requests keep the previous version rather than patching a partial endpoint
+        publishLock.lock();
+        try {
+            List<ApiEndpoint> bound = new ArrayList<>();
+            binding.set(bound);
+            try {
+                endpoint.bind(this);
+            } finally {
+                binding.remove();
+            }
+            List<ApiEndpoint> previous = registered.put(endpoint, bound);
+            if (previous != null) {
+                previous.forEach(this::unbind);
+            }
+            publishDoc(previous != null);
+        } finally {
+            publishLock.unlock();
+        }
+        return this;
+    }
+
+    /**
+     * Removes an endpoint registered with {@link #register(Endpoint)}. Its routes answer 404 and the spec is
+     * rebuilt without it.
+     */
+    public SparkSwagger unregister(final Endpoint endpoint) throws IOException {
+        List<ApiEndpoint> bound = registered.remove(endpoint);
+        if (bound != null) {
+            bound.forEach(this::unbind);
+            publishDoc(true);
+        }
+        return this;
+    }
+
+    /**
+     * Removes an API endpoint. Its routes answer 404 and the spec is rebuilt without it.
+     */
+    public SparkSwagger unregister(final ApiEndpoint apiEndpoint) throws IOException {
+        unbind(apiEndpoint);
+        publishDoc(true);
+        return this;
+    }
+
+    private void unbind(final ApiEndpoint apiEndpoint) {
+        apiEndpoint.unbind();
+        filters.remove(apiPath + apiEndpoint.getEndpointDescriptor().getPath(), apiEndpoint);
+        swagger.removeApiEndpoint(apiEndpoint);
+    }
+
+    /**
+     * Adds the before filter of an endpoint to the dispatcher, installed as a single Spark filter on first use.
+     */
+    private void filter(final ApiEndpoint apiEndpoint, final Filter filter) {
+        if (filter == null) {
+            return;
+        }
+        if (!filtersInstalled.getAndSet(true)) {
+            spark.before(filters);
+        }
+        filters.add(apiPath + apiEndpoint.getEndpointDescriptor().getPath(), filter, apiEndpoint);
+    }
+
+    private void bound(final ApiEndpoint apiEndpoint) {
+        this.swagger.addApiEndpoint(apiEndpoint);
+        invalidateDoc(apiEndpoint);
+        List<ApiEndpoint> bound = binding.get();
+        if (bound != null) {
+            bound.add(apiEndpoint);
+        }
     }
 
     public ApiEndpoint endpoint(final EndpointDescriptor.Builder descriptorBuilder, final Filter filter) {
         Optional.ofNullable(apiPath).orElseThrow(() -> new IllegalStateException("API Path must be specified in order to build REST endpoint"));
         EndpointDescriptor descriptor = descriptorBuilder.build();
-        spark.before(apiPath + descriptor.getPath() + "/*", filter);
         ApiEndpoint apiEndpoint = new ApiEndpoint(this, descriptor);
-        this.swagger.addApiEndpoint(apiEndpoint);
+        filter(apiEndpoint, filter);
+        bound(apiEndpoint);
         return apiEndpoint;
     }
 
     public SparkSwagger endpoint(final EndpointDescriptor.Builder descriptorBuilder, final Filter filter, Consumer<ApiEndpoint> endpointDef) {
         Optional.ofNullable(apiPath).orElseThrow(() -> new IllegalStateException("API Path must be specified in order to build REST endpoint"));
         EndpointDescriptor descriptor = descriptorBuilder.build();
-        spark.before(apiPath + descriptor.getPath() + "/*", filter);
         ApiEndpoint apiEndpoint = new ApiEndpoint(this, descriptor);
+        filter(apiEndpoint, filter);
         endpointDef.accept(apiEndpoint);
-        this.swagger.addApiEndpoint(apiEndpoint);
+        bound(apiEndpoint);
         return this;
     }
 
@@ -185,6 +458,20 @@ public class SparkSwagger {
         return spark.halt(status, body);
     }
 
+    private String getMetricsRoute() {
+        String path = config.getServiceName() + config.getMetricsPath();
+        return (path.startsWith("/") ? "" : "/") + path;
+    }
+
+    private String getDocRoute() {
+        return docRoute(config);
+    }
+
+    static String docRoute(final Config config) {
+        String basePath = config.getServiceName() + config.getDocPath();
+        return (basePath.startsWith("/") ? "" : "/") + basePath + (basePath.endsWith("/") ? "" : "/");
+    }
+
     private String getHost() {
         String host = this.config.getHost();
         if (host == null || host.contains("localhost") && host.split(":").length != 2) {
@@ -0,0 +1,19 @@
+package com.beerboy.ss
+
+/**
+ * Parts of a [Swagger] model changed by a parse: keys of the paths with new operations, keys of the new
+ * definitions and whether tags were added.
+ *
+ * @author manusant
+ */
+class SpecChanges(val paths: Set<String>, val definitions: Set<String>, val tags: Boolean) {
+
+    fun isEmpty(): Boolean {
+        return paths.isEmpty() && definitions.isEmpty() && !tags
+    }
+
+    companion object {
+        @JvmField
+        val NONE = SpecChanges(emptySet(), emptySet(), false)
+    }
+}
@@ -0,0 +1,99 @@
+package com.beerboy.ss;
+
+import com.beerboy.ss.model.Info;
+import com.beerboy.ss.model.ModelImpl;
+import com.beerboy.ss.model.Operation;
+import com.beerboy.ss.model.Path;
+import com.beerboy.ss.model.RefModel;
+import com.beerboy.ss.model.Response;
+import com.beerboy.ss.model.Tag;
+import com.beerboy.ss.model.parameters.BodyParameter;
+import com.beerboy.ss.model.parameters.PathParameter;
+import com.beerboy.ss.model.properties.ArrayProperty;
+import com.beerboy.ss.model.properties.IntegerProperty;
+import com.beerboy.ss.model.properties.RefProperty;
+import com.beerboy.ss.model.properties.StringProperty;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * Output formats of the spec, each with a shared, preconfigured mapper and {@link Swagger} writer. Both are
+ * thread-safe. Serializers of the model classes are resolved once when this class is loaded, by rendering a
+ * small sample spec, so renders only reuse the Jackson caches.
+ *
+ * @author manusant
+ */
+public enum SpecFormat {
+
+    JSON(new JsonFactory()),
+    YAML(new YAMLFactory());
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpecFormat.class);
+
+    static {
+        Swagger sample = sample();
+        for (SpecFormat format : values()) {
+            try {
+                format.writer.writeValueAsBytes(sample);
+            } catch (IOException e) {
+                LOGGER.warn("Spark-Swagger: Unable to warm up " + format + " serializers", e);
+            }
+        }
+    }
+
+    private final ObjectMapper mapper;
+    private final ObjectWriter writer;
+
+    SpecFormat(final JsonFactory factory) {
+        this.mapper = new ObjectMapper(factory);
+        this.mapper.setSerializationInclusion(Include.NON_NULL);
+        // Typed writer, the root serializer is fetched right away
+        this.writer = mapper.writerFor(Swagger.class);
+    }
+
+    public ObjectMapper getMapper() {
+        return mapper;
+    }
+
+    public ObjectWriter getWriter() {
+        return writer;
+    }
+
+    private static Swagger sample() {
+        ModelImpl model = new ModelImpl();
+        model.setType(ModelImpl.OBJECT);
+        model.addProperty("name", new StringProperty());
+        model.addProperty("count", new IntegerProperty());
+        model.addProperty("items", new ArrayProperty(new RefProperty("Sample")));
+
+        RefModel refModel = new RefModel();
+        refModel.set$ref("Sample");
+        BodyParameter body = new BodyParameter();
+        body.setName("Sample");
+        body.setSchema(refModel);
+        PathParameter id = new PathParameter();
+        id.setName("id");
+        id.setType("string");
+
+        Operation operation = new Operation()
+                .tag("sample")
+                .summary("Sample")
+                .parameter(id)
+                .parameter(body)
+                .response(200, new Response().description("successful operation").header("X-Sample", new RefProperty("Sample")));
+
+        Swagger swagger = new Swagger();
+        swagger.setInfo(new Info().title("Sample"));
+        swagger.tag(new Tag().name("sample"));
+        swagger.path("/sample/{id}", new Path().post(operation));
+        swagger.addDefinition("Sample", model);
+        return swagger;
+    }
+}
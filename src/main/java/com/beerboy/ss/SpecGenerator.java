@@ -0,0 +1,71 @@
+package com.beerboy.ss;
+
+import com.beerboy.ss.rest.SpecSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+
+import spark.Service;
+import spark.globalstate.ServletFlag;
+
+/**
+ * Generates the Swagger spec of an application at build time. Endpoints are bound against a Spark service that
+ * never starts its server, the resulting doc.json and doc.yaml are written as resources that
+ * {@link SparkSwagger#generateDoc()} loads instead of introspecting types at runtime.
+ * <p>
+ * Usage: {@code SpecGenerator <outputDir> <SpecSource class name>}
+ *
+ * @author manusant
+ */
+public class SpecGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpecGenerator.class);
+
+    public static final String SPEC_LOCATION = "META-INF/spark-swagger";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: SpecGenerator <outputDir> <SpecSource class name>");
+        }
+        SpecSource source = (SpecSource) Class.forName(args[1]).newInstance();
+        File folder = new File(args[0], specFolder(source.getConfig()));
+        write(bind(source), folder);
+        LOGGER.info("Spark-Swagger: Swagger spec generated to " + folder);
+    }
+
+    /**
+     * Binds the endpoints of the given source and returns the resulting, not yet parsed, model.
+     */
+    public static Swagger bind(final SpecSource source) {
+        // Routes are registered but no server is started, nor the host resolved or the UI set up
+        ServletFlag.runFromServlet();
+        SparkSwagger sparkSwagger = SparkSwagger.forGenerator(Service.ignite(), source.getConfig());
+        if (source.getIgnoreSpec() != null) {
+            sparkSwagger.ignores(source::getIgnoreSpec);
+        }
+        sparkSwagger.endpoints(source.getResolver());
+        return sparkSwagger.getSwagger();
+    }
+
+    /**
+     * Streams every format of the spec to the given folder.
+     */
+    public static void write(final Swagger swagger, final File folder) throws IOException {
+        if (!folder.isDirectory() && !folder.mkdirs()) {
+            throw new IOException("Spark-Swagger: Unable to create spec folder " + folder);
+        }
+        SwaggerParser.writeJson(swagger, new File(folder, RenderedSpec.JSON_FILE).getPath());
+        SwaggerParser.writeYaml(swagger, new File(folder, RenderedSpec.YAML_FILE).getPath());
+        SwaggerParser.writeJs(swagger, new File(folder, RenderedSpec.JS_FILE).getPath());
+    }
+
+    /**
+     * Location of the prebuilt spec of a service in the classpath, relative to the resources root.
+     */
+    static String specFolder(final Config config) {
+        return SPEC_LOCATION + SparkSwagger.docRoute(config);
+    }
+}
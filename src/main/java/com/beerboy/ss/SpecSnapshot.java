@@ -0,0 +1,60 @@
+package com.beerboy.ss;
+
+import com.beerboy.ss.ui.StaticAsset;
+import com.beerboy.ss.ui.UiAssets;
+
+/**
+ * Immutable version of the served spec. Versions are published as a whole, so the doc routes never see a spec
+ * being built nor mix formats of different versions.
+ *
+ * @author manusant
+ */
+final class SpecSnapshot {
+
+    static final SpecSnapshot EMPTY = new SpecSnapshot(0, null);
+
+    private final long version;
+    private final RenderedSpec spec;
+    private final StaticAsset js;
+    private final StaticAsset yaml;
+    private final StaticAsset json;
+
+    private SpecSnapshot(final long version, final RenderedSpec spec) {
+        this.version = version;
+        this.spec = spec;
+        this.js = spec == null ? null : StaticAsset.of(UiAssets.contentType(RenderedSpec.JS_FILE), spec.getJs());
+        this.yaml = spec == null ? null : StaticAsset.of(UiAssets.contentType(RenderedSpec.YAML_FILE), spec.getYaml());
+        this.json = spec == null ? null : StaticAsset.of(UiAssets.contentType(RenderedSpec.JSON_FILE), spec.getJson());
+    }
+
+    SpecSnapshot next(final RenderedSpec spec) {
+        return new SpecSnapshot(version + 1, spec);
+    }
+
+    /**
+     * Same version of the spec, served as rendered by the given spec, such as one annotated with metrics.
+     */
+    SpecSnapshot annotated(final RenderedSpec spec) {
+        return new SpecSnapshot(version, spec);
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    RenderedSpec getSpec() {
+        return spec;
+    }
+
+    StaticAsset getJs() {
+        return js;
+    }
+
+    StaticAsset getYaml() {
+        return yaml;
+    }
+
+    StaticAsset getJson() {
+        return json;
+    }
+}
@@ -1,6 +1,7 @@
 package com.beerboy.ss
 
 import com.beerboy.spark.typify.spec.IgnoreSpec
+import com.beerboy.ss.descriptor.MethodDescriptor
 import com.beerboy.ss.factory.DefinitionsFactory
 import com.beerboy.ss.factory.ParamsFactory
 import com.beerboy.ss.model.*
@@ -16,7 +17,10 @@ import com.fasterxml.jackson.annotation.JsonInclude
 import com.fasterxml.jackson.annotation.JsonInclude.Include
 import org.slf4j.LoggerFactory
 import java.util.*
-import kotlin.reflect.full.starProjectedType
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+import java.util.concurrent.ForkJoinPool
+import java.util.function.Supplier
 
 /**
  * @author manusant
@@ -45,6 +49,12 @@ class Swagger {
     private var apiEndpoints: MutableList<ApiEndpoint>? = null
     @JsonIgnore
     private var ignoreSpec: IgnoreSpec? = null
+    // Endpoints with methods bound since the last parse
+    @JsonIgnore
+    private val dirtyEndpoints = LinkedHashSet<ApiEndpoint>()
+    // Registered endpoints along with the number of their methods already parsed
+    @JsonIgnore
+    private val parsedMethods = IdentityHashMap<ApiEndpoint, Int>()
 
 
     var securityRequirement: MutableList<SecurityRequirement>?
@@ -57,8 +67,12 @@ class Swagger {
             this.security = securityRequirements
         }
 
+    @Synchronized
     fun endpoints(apiEndpoints: MutableList<ApiEndpoint>): Swagger {
         this.apiEndpoints = apiEndpoints
+        this.parsedMethods.clear()
+        apiEndpoints.forEach { parsedMethods[it] = 0 }
+        invalidate()
         return this
     }
 
@@ -168,8 +182,16 @@ class Swagger {
         return this
     }
 
+    /**
+     * Replaces the ignore rules. Paths, tags and definitions are rebuilt under the new rules by the next [parse].
+     */
+    @Synchronized
     fun ignores(ignoreConf: IgnoreSpec): Swagger {
         this.ignoreSpec = ignoreConf
+        paths = null
+        tags = null
+        definitions = null
+        invalidate()
         return this
     }
 
@@ -185,11 +207,59 @@ class Swagger {
         return apiEndpoints
     }
 
+    @Synchronized
     fun addApiEndpoint(endpoint: ApiEndpoint) {
         if (apiEndpoints == null) {
             apiEndpoints = ArrayList()
         }
         apiEndpoints!!.add(endpoint)
+        parsedMethods.putIfAbsent(endpoint, 0)
+        dirtyEndpoints.add(endpoint)
+    }
+
+    /**
+     * Removes an endpoint. Paths, tags and definitions are rebuilt from the remaining endpoints by the next [parse].
+     */
+    @Synchronized
+    fun removeApiEndpoint(endpoint: ApiEndpoint) {
+        if (apiEndpoints?.remove(endpoint) != true) {
+            return
+        }
+        parsedMethods.remove(endpoint)
+        dirtyEndpoints.remove(endpoint)
+        paths = null
+        tags = null
+        definitions = null
+        invalidate()
+    }
+
+    /**
+     * Marks every endpoint for parsing, already parsed operations are parsed again.
+     */
+    @Synchronized
+    fun invalidate() {
+        parsedMethods.replaceAll { _, _ -> 0 }
+        dirtyEndpoints.addAll(parsedMethods.keys)
+    }
+
+    /**
+     * Marks an endpoint bound with new methods, only those are parsed by the next [parse].
+     */
+    @Synchronized
+    fun invalidate(endpoint: ApiEndpoint) {
+        if (parsedMethods.containsKey(endpoint)) {
+            dirtyEndpoints.add(endpoint)
+        }
+    }
+
+    /**
+     * Marks the methods bound so far as parsed without parsing them, for a model whose spec was rendered
+     * elsewhere, such as a prebuilt spec. Following parses only cover methods bound afterwards.
+     */
+    @Synchronized
+    fun markParsed() {
+        parsedMethods.replaceAll { endpoint, _ -> endpoint.methodDescriptors.size }
+        dirtyEndpoints.clear()
     }
 
     fun getSchemes(): List<Scheme>? {
@@ -390,102 +460,157 @@ class Swagger {
         }
     }
 
-    fun parse() {
-        LOGGER.debug("Spark-Swagger: Start parsing metadata")
-        if (apiEndpoints != null) {
-            apiEndpoints!!.forEach { endpoint ->
-                if (ignoreSpec == null || !ignoreSpec!!.ignored(endpoint.endpointDescriptor.path)) {
-
-                    tag(endpoint.endpointDescriptor.tag)
-                    endpoint.methodDescriptors.forEach { methodDescriptor ->
-
-                        val op = Operation()
-                        op.tag(endpoint.endpointDescriptor.tag.name)
-                        op.description(methodDescriptor.description)
-                        op.summary(methodDescriptor.summary)
-
-                        val parameters = ParamsFactory.create(methodDescriptor.path, methodDescriptor.parameters)
-                        op.parameters = parameters
-
-                        // Supply Ignore configurations
-                        DefinitionsFactory.ignoreSpec = this.ignoreSpec
-
-                        if (methodDescriptor.requestType != null) {
-                            // Process fields
-                            val definitions = DefinitionsFactory.create(methodDescriptor.requestType?.starProjectedType!!)
-                            for (key in definitions.keys) {
-                                if (!hasDefinition(key)) {
-                                    addDefinition(key, definitions[key]!!)
-                                }
-                            }
-
-                            val model: Model
-
-                            if (definitions.isEmpty()) {
-                                val property = DefinitionsFactory.createProperty(methodDescriptor.requestType?.starProjectedType!!)
-                                model = PropertyModelConverter().propertyToModel(property)
-                            } else {
-                                val refModel = RefModel()
-                                refModel.`$ref` = methodDescriptor.requestType!!.simpleName
-                                model = refModel
-                            }
-
-                            val requestBody = BodyParameter()
-                            requestBody.description("Body object description")
-                            requestBody.name = methodDescriptor.requestType?.simpleName
-                            requestBody.required = true
-                            requestBody.schema = model
-                            op.addParameter(requestBody)
-                        }
-
-                        if (methodDescriptor.responseType != null) {
-                            // Process fields
-                            val definitions = DefinitionsFactory.create(methodDescriptor.responseType?.starProjectedType!!)
-                            for (key in definitions.keys) {
-                                if (!hasDefinition(key)) {
-                                    addDefinition(key, definitions[key]!!)
-                                }
-                            }
-
-                            val property: Property?
-                            if (definitions.isEmpty()) {
-                                property = DefinitionsFactory.createProperty(methodDescriptor.responseType?.starProjectedType!!)
-                            } else {
-                                val refModel = RefModel()
-                                refModel.`$ref` = methodDescriptor.responseType!!.simpleName
-                                property = PropertyModelConverter().modelToProperty(refModel)
-                            }
-
-                            val responseBody = Response()
-                            responseBody.description("successful operation")
-                            responseBody.schema = property
-                            op.addResponse("200", responseBody)
-
-                        } else {
-                            val responseBody = Response()
-                            responseBody.description("successful operation")
-                            op.addResponse("200", responseBody)
-                        }
-
-                        if (methodDescriptor.produces != null) {
-                            op.produces(methodDescriptor.produces)
-                        }
-                        if (methodDescriptor.consumes != null) {
-                            op.consumes(methodDescriptor.consumes)
-                        }
-
-
-                        addOperation(methodDescriptor.path, methodDescriptor.method, op)
+    /**
+     * Builds paths, tags and definitions from the methods bound since the last call, so every output format can
+     * be rendered from a single parse and late bound methods are parsed on their own. Endpoints or ignores
+     * replaced since then cause every method to be parsed again.
+     * <p>
+     * Operations are built in parallel with a definitions factory scoped to this parse, then merged in
+     * registration order so the output does not depend on scheduling.
+     *
+     * @return the paths, definitions and tags changed by this parse
+     */
+    @Synchronized
+    fun parse(): SpecChanges {
+        if (apiEndpoints == null) {
+            LOGGER.debug("Spark-Swagger: No metadata to parse. Please check your SparkSwagger configurations and Endpoints Resolver")
+            return SpecChanges.NONE
+        }
+        if (dirtyEndpoints.isEmpty()) {
+            LOGGER.debug("Spark-Swagger: Metadata already parsed")
+            return SpecChanges.NONE
+        }
+        LOGGER.debug("Spark-Swagger: Start parsing metadata of " + dirtyEndpoints.size + " endpoints")
+        val factory = DefinitionsFactory(ignoreSpec = ignoreSpec)
+        val endpoints = dirtyEndpoints.filter { endpoint ->
+            ignoreSpec == null || !ignoreSpec!!.ignored(endpoint.endpointDescriptor.path)
+        }
+
+        val operations = endpoints.map { endpoint ->
+            // Methods may be bound concurrently, the copy on write list is read once
+            val methods = endpoint.methodDescriptors.toList()
+            val from = parsedMethods[endpoint] ?: 0
+            val to = methods.size
+            parsedMethods[endpoint] = to
+            methods.subList(from, to).map { methodDescriptor ->
+                CompletableFuture.supplyAsync(Supplier { createOperation(endpoint, methodDescriptor, factory) }, ForkJoinPool.commonPool())
+            }
+        }
+        dirtyEndpoints.clear()
+
+        val changedPaths = LinkedHashSet<String>()
+        val addedDefinitions = LinkedHashSet<String>()
+        val tagCount = tags?.size ?: 0
+        endpoints.forEachIndexed { index, endpoint ->
+            tag(endpoint.endpointDescriptor.tag)
+            operations[index].forEach { future ->
+                val operation = join(future)
+                for ((key, model) in operation.definitions) {
+                    if (!hasDefinition(key)) {
+                        addDefinition(key, model)
+                        addedDefinitions.add(key)
                     }
                 }
+                changedPaths.add(addOperation(operation.path, operation.method, operation.operation))
+            }
+        }
+        LOGGER.debug("Spark-Swagger: metadata successfully parsed")
+        return SpecChanges(changedPaths, addedDefinitions, (tags?.size ?: 0) != tagCount)
+    }
+
+    /**
+     * Operation of a method along with the definitions it references, not yet merged into this model.
+     */
+    private class ParsedOperation(val path: String?, val method: HttpMethod?, val operation: Operation, val definitions: Map<String, Model>)
+
+    private fun createOperation(endpoint: ApiEndpoint, methodDescriptor: MethodDescriptor, factory: DefinitionsFactory): ParsedOperation {
+        val definitions = LinkedHashMap<String, Model>()
+
+        val op = Operation()
+        op.tag(endpoint.endpointDescriptor.tag.name)
+        op.description(methodDescriptor.description)
+        op.summary(methodDescriptor.summary)
+
+        val parameters = ParamsFactory.create(methodDescriptor.path, methodDescriptor.parameters)
+        op.parameters = parameters
+
+        if (methodDescriptor.requestType != null) {
+            // Process fields
+            val requestDefinitions = factory.create(methodDescriptor.requestType!!.java)
+            definitions.putAll(requestDefinitions)
+
+            val model: Model
+
+            if (requestDefinitions.isEmpty()) {
+                val property = factory.createProperty(methodDescriptor.requestType!!.java)
+                model = PropertyModelConverter().propertyToModel(property)
+            } else {
+                val refModel = RefModel()
+                refModel.`$ref` = methodDescriptor.requestType!!.simpleName
+                model = refModel
+            }
+
+            val requestBody = BodyParameter()
+            requestBody.description("Body object description")
+            requestBody.name = methodDescriptor.requestType?.simpleName
+            requestBody.required = true
+            requestBody.schema = model
+            op.addParameter(requestBody)
+        }
+
+        if (methodDescriptor.responseType != null) {
+            // Process fields
+            val responseDefinitions = factory.create(methodDescriptor.responseType!!.java)
+            for ((key, model) in responseDefinitions) {
+                definitions.putIfAbsent(key, model)
+            }
+
+            val property: Property?
+            if (responseDefinitions.isEmpty()) {
+                property = factory.createProperty(methodDescriptor.responseType!!.java)
+            } else {
+                val refModel = RefModel()
+                refModel.`$ref` = methodDescriptor.responseType!!.simpleName
+                property = PropertyModelConverter().modelToProperty(refModel)
             }
-            LOGGER.debug("Spark-Swagger: metadata successfully parsed")
+
+            val responseBody = Response()
+            responseBody.description("successful operation")
+            responseBody.schema = property
+            op.addResponse("200", responseBody)
+
         } else {
-            LOGGER.debug("Spark-Swagger: No metadata to parse. Please check your SparkSwagger configurations and Endpoints Resolver")
+            val responseBody = Response()
+            responseBody.description("successful operation")
+            op.addResponse("200", responseBody)
+        }
+
+        if (methodDescriptor.produces != null) {
+            op.produces(methodDescriptor.produces)
+        }
+        if (methodDescriptor.consumes != null) {
+            op.consumes(methodDescriptor.consumes)
+        }
+        val cachePolicy = methodDescriptor.cachePolicy
+        if (cachePolicy != null) {
+            val extension = LinkedHashMap<String, Any>()
+            extension["ttl"] = cachePolicy.ttl.seconds
+            extension["maxEntries"] = cachePolicy.maxEntries
+            extension["keyParams"] = cachePolicy.keyParams
+            op.setVendorExtension("x-cache-policy", extension)
+        }
+        return ParsedOperation(methodDescriptor.path, methodDescriptor.method, op, definitions)
+    }
+
+    private fun <T> join(future: CompletableFuture<T>): T {
+        try {
+            return future.join()
+        } catch (e: CompletionException) {
+            throw e.cause ?: e
         }
     }
 
-    private fun addOperation(pathStr: String?, method: HttpMethod?, op: Operation) {
+    private fun addOperation(pathStr: String?, method: HttpMethod?, op: Operation): String {
         val formattedPath = ParamsFactory.formatPath(pathStr)
         if (paths != null && paths!!.containsKey(formattedPath)) {
             val path = paths!![formattedPath]
@@ -496,6 +621,7 @@ class Swagger {
             path(formattedPath, path)
         }
         LOGGER.debug("Spark-Swagger: " + method!!.name + " " + formattedPath + " parsed")
+        return formattedPath
     }
 
     override fun hashCode(): Int {
@@ -1,24 +1,29 @@
 package com.beerboy.ss;
 
 import com.beerboy.ss.conf.Theme;
+import com.beerboy.ss.ui.StaticAsset;
+import com.beerboy.ss.ui.UiAssets;
+import com.beerboy.ss.ui.UiManifest;
 import com.beerboy.ss.ui.UiTemplates;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
-import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.security.CodeSource;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -30,85 +35,179 @@ public class SwaggerHammer {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SwaggerHammer.class);
 
-    public void prepareUi(final Config config, Swagger swagger) throws IOException {
+    private static final String THEMED_CSS = "swagger-ui.css";
+    private static final ConcurrentMap<Theme, StaticAsset> THEME_ASSETS = new ConcurrentHashMap<>();
+    private static final String UI_INDEX = "META-INF/spark-swagger/ui.index";
+    private static UiAssets classpathAssets;
+    private static List<String> uiIndex;
+    private static byte[] uiIndexContent;
+
+    public RenderedSpec prepareUi(final Config config, Swagger swagger) throws IOException {
+        return prepareUi(config, swagger, null);
+    }
+
+    /**
+     * Extracts the UI and renders the spec, unless an already rendered spec is given.
+     */
+    public RenderedSpec prepareUi(final Config config, Swagger swagger, RenderedSpec renderedSpec) throws IOException {
         LOGGER.debug("Spark-Swagger: Start compiling Swagger UI");
 
         String uiFolder = SwaggerHammer.getUiFolder(config.getServiceName() + config.getDocPath());
+        UiManifest manifest = UiManifest.load(uiFolder);
 
-        // 1 - Extract UI/Templates folder to a temporary folder
-        extractUi(uiFolder);
-
-        // 2 - Decorate index.html according to configurations
+        // 1 - Decorate index.html according to configurations
         String newIndex = decorateIndex(config);
 
-        // 3 - Save new Index to UI folder
-        saveFile(uiFolder, "index.html", newIndex);
+        // 2 - Extract the UI unless the folder already holds the same extraction
+        String fingerprint = fingerprint(config, newIndex);
+        if (manifest.isCurrent(fingerprint)) {
+            LOGGER.debug("Spark-Swagger: UI already extracted to " + uiFolder);
+        } else {
+            // 2.1 - Extract UI/Templates folder to a temporary folder
+            extractUi(uiFolder, manifest, config);
+
+            // 2.2 - Save new Index to UI folder
+            saveFile(manifest, UiAssets.INDEX, newIndex);
+
+            // 2.3 - Apply theme according to configurations
+            applyTheme(manifest, config);
+
+            // 2.4 - Prune files not extracted anymore, such as stale spec copies, and record the extraction
+            manifest.store(fingerprint);
+        }
+
+        // 3 - Serialize Swagger definitions once, they are served from memory
+        return renderedSpec != null ? renderedSpec : SwaggerParser.render(swagger);
+    }
+
+    /**
+     * Fingerprint of an extraction: the UI resource index, which holds a content hash per resource, and the
+     * configurations the extracted files depend on. Null when resources are not indexed, e.g. running from an IDE,
+     * the UI is then extracted on every start.
+     */
+    private static String fingerprint(final Config config, final String index) throws IOException {
+        byte[] resources = uiIndexContent();
+        if (resources == null) {
+            return null;
+        }
+        String options = config.getTheme() + "," + config.getExtractSourceMaps() + "," + config.getExtractAllThemes();
+        return UiManifest.fingerprint(resources, options.getBytes(StandardCharsets.UTF_8), index.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Builds the UI without touching the filesystem. Classpath assets are loaded and compressed once per JVM
+     * and shared between instances, only the decorated index.html and the themed swagger-ui.css are
+     * specific to the given configuration.
+     */
+    public UiAssets loadUi(final Config config) throws IOException {
+        LOGGER.debug("Spark-Swagger: Start loading Swagger UI from classpath");
+        Map<String, StaticAsset> assets = new HashMap<>();
+        assets.put(UiAssets.INDEX, StaticAsset.of(UiAssets.contentType(UiAssets.INDEX), decorateIndex(config).getBytes(StandardCharsets.UTF_8)));
+        assets.put(THEMED_CSS, themeAsset(Theme.fromValue(config.getTheme().toString())));
+
+        UiAssets uiAssets = classpathAssets().with(assets);
+        LOGGER.debug("Spark-Swagger: Swagger UI loaded in memory with " + uiAssets.size() + " assets");
+        return uiAssets;
+    }
 
-        // 4 - Serialize Swagger definitions and save it to UI folder
-        SwaggerParser.writeJs(swagger, uiFolder + "swagger-spec.js");
-        SwaggerParser.writeYaml(swagger, uiFolder + "doc.yaml");
-        SwaggerParser.writeJson(swagger, uiFolder + "doc.json");
+    private static synchronized UiAssets classpathAssets() throws IOException {
+        if (classpathAssets == null) {
+            Map<String, StaticAsset> assets = new HashMap<>();
+            for (String fileName : listFileNames("ui")) {
+                assets.put(fileName, StaticAsset.of(UiAssets.contentType(fileName), readResource("ui/" + fileName)));
+            }
+            classpathAssets = UiAssets.of(assets);
+        }
+        return classpathAssets;
+    }
 
-        // 5 - Apply theme according to configurations
-        applyTheme(uiFolder, config);
+    private static StaticAsset themeAsset(final Theme theme) throws IOException {
+        StaticAsset asset = THEME_ASSETS.get(theme);
+        if (asset == null) {
+            asset = StaticAsset.of(UiAssets.contentType(THEMED_CSS), readResource("ui/templates/" + theme.getValue() + ".css"));
+            StaticAsset existing = THEME_ASSETS.putIfAbsent(theme, asset);
+            asset = existing != null ? existing : asset;
+        }
+        return asset;
     }
 
-    private void extractUi(String uiFolder) throws IOException {
-        extractUiFolder(uiFolder);
-        extractTemplatesFolder(uiFolder);
-        LOGGER.debug("Spark-Swagger: UI resources and templates successfully extracted");
+    private static byte[] readResource(final String path) throws IOException {
+        try (InputStream resource = SwaggerHammer.class.getClassLoader().getResourceAsStream(path)) {
+            if (resource == null) {
+                throw new FileNotFoundException("Spark-Swagger: UI resource " + path + " not found in classpath");
+            }
+            return read(resource);
+        }
     }
 
-    private void extractUiFolder(String uiFolder) throws IOException {
+    private static byte[] read(final InputStream resource) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream(Math.max(resource.available(), 1024));
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = resource.read(buffer)) != -1) {
+            content.write(buffer, 0, read);
+        }
+        return content.toByteArray();
+    }
+
+    private void extractUi(String uiFolder, UiManifest manifest, final Config config) throws IOException {
+        extractUiFolder(manifest, config);
+        extractTemplatesFolder(manifest, config);
+        LOGGER.debug("Spark-Swagger: UI resources and templates successfully extracted to " + uiFolder);
+    }
+
+    private void extractUiFolder(UiManifest manifest, final Config config) throws IOException {
 
         String dir = "ui";
-        List<String> uiFiles = listFiles(dir)
-                .stream()
-                .map(filePath -> filePath.substring(filePath.indexOf(dir) + dir.length() + 1).trim())
-                .filter(fileName -> !fileName.contains("/") && !fileName.isEmpty())
-                .collect(Collectors.toList());
+        List<String> uiFiles = listFileNames(dir);
 
         for (String uiFileName : uiFiles) {
-            InputStream uiFile = SparkSwagger.class.getClassLoader().getResourceAsStream(dir + "/" + uiFileName);
-            File file = new File(uiFolder + uiFileName);
-            if (file.exists()) {
-                file.delete();
+            if (uiFileName.equals(UiAssets.INDEX) || uiFileName.equals(THEMED_CSS)) {
+                // Generated from configurations
+                continue;
+            }
+            if (uiFileName.endsWith(".map") && !config.getExtractSourceMaps()) {
+                continue;
             }
-            file.getParentFile().mkdirs();
-            file.createNewFile();
-            Files.copy(uiFile, file.getAbsoluteFile().toPath(), StandardCopyOption.REPLACE_EXISTING);
+            manifest.write(uiFileName, readResource(dir + "/" + uiFileName));
         }
     }
 
-    private void extractTemplatesFolder(String uiFolder) throws IOException {
-
-        File templatesFolder = new File(uiFolder + "templates/");
-        if (!templatesFolder.exists()) {
-            templatesFolder.mkdir();
+    private void extractTemplatesFolder(UiManifest manifest, final Config config) throws IOException {
+        if (!config.getExtractAllThemes()) {
+            // Only the applied theme is needed, it is written as swagger-ui.css
+            return;
         }
 
         String dir = "ui/templates";
-        List<String> templateFiles = listFiles(dir)
+        List<String> templateFiles = listFileNames(dir);
+
+        for (String templateFileName : templateFiles) {
+            manifest.write("templates/" + templateFileName, readResource(dir + "/" + templateFileName));
+        }
+    }
+
+    private static List<String> listFileNames(String dir) throws IOException {
+        return listFiles(dir)
                 .stream()
                 .map(filePath -> filePath.substring(filePath.indexOf(dir) + dir.length() + 1).trim())
                 .filter(fileName -> !fileName.contains("/") && !fileName.isEmpty())
                 .collect(Collectors.toList());
-
-        for (String templateFileName : templateFiles) {
-            InputStream templateFile = SparkSwagger.class.getClassLoader().getResourceAsStream(dir + "/" + templateFileName);
-            File file = new File(uiFolder + "templates/" + templateFileName);
-            if (file.exists()) {
-                file.delete();
-            }
-            file.getParentFile().mkdirs();
-            file.createNewFile();
-            Files.copy(templateFile, file.getAbsoluteFile().toPath(), StandardCopyOption.REPLACE_EXISTING);
-        }
     }
 
-    private List<String> listFiles(String prefix) throws IOException {
+    private static List<String> listFiles(String prefix) throws IOException {
         List<String> uiFiles = new ArrayList<>();
 
+        List<String> index = uiIndex();
+        if (index != null) {
+            for (String name : index) {
+                if (name.startsWith(prefix)) {
+                    uiFiles.add(name);
+                }
+            }
+            return uiFiles;
+        }
+
         CodeSource src = SparkSwagger.class.getProtectionDomain().getCodeSource();
         if (src != null) {
             URL jar = src.getLocation();
@@ -125,7 +224,7 @@ public class SwaggerHammer {
         }
 
         if (uiFiles.isEmpty()) {
-            File[] files = new File(this.getClass().getClassLoader().getResource(prefix).getPath()).listFiles();
+            File[] files = new File(SwaggerHammer.class.getClassLoader().getResource(prefix).getPath()).listFiles();
             for (File file : files) {
                 if (!file.isDirectory()) {
                     uiFiles.add(file.getAbsoluteFile().toString());
@@ -136,29 +235,50 @@ public class SwaggerHammer {
         return uiFiles;
     }
 
-    private void applyTheme(String uiFolder, final Config config) throws IOException {
+    /**
+     * Lists the UI resources from the index generated by the build, so listing resources does not require scanning
+     * the whole code source jar. Returns null when the index is not available, e.g. running from an IDE.
+     */
+    private static synchronized List<String> uiIndex() throws IOException {
+        if (uiIndex == null) {
+            byte[] content = uiIndexContent();
+            if (content == null) {
+                return null;
+            }
+            // Each line holds a resource name and the hash of its content
+            uiIndex = Arrays.stream(new String(content, StandardCharsets.UTF_8).split("\n"))
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty())
+                    .map(line -> line.lastIndexOf(' ') < 0 ? line : line.substring(0, line.lastIndexOf(' ')))
+                    .collect(Collectors.toList());
+            LOGGER.debug("Spark-Swagger: UI resources listed from " + UI_INDEX);
+        }
+        return uiIndex;
+    }
+
+    private static synchronized byte[] uiIndexContent() throws IOException {
+        if (uiIndexContent == null) {
+            try (InputStream index = SwaggerHammer.class.getClassLoader().getResourceAsStream(UI_INDEX)) {
+                if (index == null) {
+                    return null;
+                }
+                uiIndexContent = read(index);
+            }
+        }
+        return uiIndexContent;
+    }
+
+    private void applyTheme(UiManifest manifest, final Config config) throws IOException {
         LOGGER.debug("Spark-Swagger: Start applying configured CSS Theme");
         String themeName = config.getTheme().toString();
         Theme theme = Theme.fromValue(themeName);
 
-        String themeCss = readFile(uiFolder, "templates/" + theme.getValue() + ".css", StandardCharsets.UTF_8);
-        saveFile(uiFolder, "swagger-ui.css", themeCss);
+        manifest.write(THEMED_CSS, readResource("ui/templates/" + theme.getValue() + ".css"));
         LOGGER.debug("Spark-Swagger: CSS Theme successfully applied");
     }
 
-    private String readFile(String uiFolder, String name, Charset encoding) throws IOException {
-        byte[] encoded = Files.readAllBytes(Paths.get(uiFolder + name));
-        return new String(encoded, encoding);
-    }
-
-    private void saveFile(String uiFolder, String fileName, String content) throws IOException {
-        File file = new File(uiFolder + fileName);
-        file.delete();
-
-        FileWriter f2 = new FileWriter(file, false);
-        f2.write(content);
-        f2.close();
-        LOGGER.debug("Spark-Swagger: Swagger UI file " + fileName + " successfully saved");
+    private void saveFile(UiManifest manifest, String fileName, String content) throws IOException {
+        manifest.write(fileName, content.getBytes(StandardCharsets.UTF_8));
     }
 
     public static String getUiFolder(String basePath) {
@@ -1,15 +1,29 @@
 package com.beerboy.ss;
 
-import com.fasterxml.jackson.annotation.JsonInclude.Include;
-import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.beerboy.ss.model.Tag;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * @author manusant
@@ -18,46 +32,231 @@ public class SwaggerParser {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SwaggerParser.class);
 
-    public static void writeYaml(final Swagger swagger, final String filePath) throws IOException {
+    private static final byte[] JS_PREFIX = "window.swaggerSpec=".getBytes(StandardCharsets.UTF_8);
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    // Top level fields resolved from the configuration of the running instance
+    private static final String[] RUNTIME_FIELDS = {"host", "basePath", "info", "schemes", "externalDocs"};
+
+    public static RenderedSpec render(final Swagger swagger) throws IOException {
         LOGGER.debug("Spark-Swagger: Start parsing Swagger definitions");
-        // Create an ObjectMapper mapper for YAML
-        ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
-        mapper.setSerializationInclusion(Include.NON_NULL);
-        // Parse endpoints
-        swagger.parse();
-        // Write object as YAML file
-        mapper.writeValue(new File(filePath), swagger);
+        // The model is held while rendering, endpoints bound meanwhile wait for it to be serialized
+        synchronized (swagger) {
+            // Parse endpoints once, every format is rendered from the same model
+            swagger.parse();
+
+            CompletableFuture<byte[]> yaml = CompletableFuture.supplyAsync(() -> toBytes(SpecFormat.YAML, swagger));
+            CompletableFuture<byte[]> json = CompletableFuture.supplyAsync(() -> toBytes(SpecFormat.JSON, swagger));
+            try {
+                byte[] jsonBytes = json.join();
+                RenderedSpec spec = new RenderedSpec(toJs(jsonBytes), yaml.join(), jsonBytes);
+                LOGGER.debug("Spark-Swagger: Swagger definitions rendered [JS, YAML, JSON]");
+                return spec;
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) e.getCause()).getCause();
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Loads a spec generated at build time by {@link SpecGenerator} from the classpath. Fields that depend on the
+     * runtime configuration, such as the host, are taken from the given unparsed model, endpoints and definitions
+     * are used as generated. Returns null when no prebuilt spec is available.
+     */
+    public static RenderedSpec loadPrebuilt(final Swagger swagger, final String folder) throws IOException {
+        byte[] json = readResource(folder + RenderedSpec.JSON_FILE);
+        if (json == null) {
+            return null;
+        }
+        ObjectMapper mapper = SpecFormat.JSON.getMapper();
+        ObjectNode prebuilt = (ObjectNode) mapper.readTree(json);
+        ObjectNode runtime = mapper.valueToTree(swagger);
+
+        boolean patched = false;
+        for (String field : RUNTIME_FIELDS) {
+            JsonNode value = runtime.get(field);
+            if (!Objects.equals(value, prebuilt.get(field))) {
+                if (value == null) {
+                    prebuilt.remove(field);
+                } else {
+                    prebuilt.set(field, value);
+                }
+                patched = true;
+            }
+        }
+
+        byte[] yaml = patched ? null : readResource(folder + RenderedSpec.YAML_FILE);
+        if (yaml == null) {
+            json = mapper.writeValueAsBytes(prebuilt);
+            yaml = SpecFormat.YAML.getMapper().writeValueAsBytes(prebuilt);
+        }
+        LOGGER.debug("Spark-Swagger: Swagger definitions loaded from prebuilt spec " + folder);
+        return new RenderedSpec(toJs(json), yaml, json);
+    }
+
+    /**
+     * Updates a rendered spec with the methods bound since it was rendered. Only those are parsed and serialized,
+     * the resulting paths, definitions and tags are patched into the document tree of the previous spec, which
+     * is then written out without going through the model again. The tree is taken over by the returned spec, so
+     * the previous one must not be patched again.
+     */
+    static RenderedSpec patch(final RenderedSpec previous, final Swagger swagger) throws IOException {
+        ObjectMapper mapper = SpecFormat.JSON.getMapper();
+        ObjectNode tree = previous.getTree() != null ? previous.getTree() : (ObjectNode) mapper.readTree(previous.getJson());
+        SpecChanges changes;
+        synchronized (swagger) {
+            changes = swagger.parse();
+            if (changes.isEmpty()) {
+                return previous;
+            }
+            patch(tree, swagger, changes);
+        }
+
+        byte[] json = mapper.writeValueAsBytes(tree);
+        byte[] yaml = SpecFormat.YAML.getMapper().writeValueAsBytes(tree);
+        LOGGER.debug("Spark-Swagger: Swagger definitions patched with " + changes.getPaths().size() + " paths");
+        return new RenderedSpec(toJs(json), yaml, json, tree);
+    }
+
+    private static void patch(final ObjectNode tree, final Swagger swagger, final SpecChanges changes) {
+        ObjectMapper mapper = SpecFormat.JSON.getMapper();
+
+        if (!changes.getPaths().isEmpty()) {
+            ObjectNode paths = tree.with("paths");
+            for (String key : changes.getPaths()) {
+                ObjectNode path = mapper.valueToTree(swagger.getPath(key));
+                // Operations of a prebuilt spec are not held by the model
+                paths.path(key).fields().forEachRemaining(operation -> {
+                    if (!path.has(operation.getKey())) {
+                        path.set(operation.getKey(), operation.getValue());
+                    }
+                });
+                paths.set(key, path);
+            }
+        }
+        if (!changes.getDefinitions().isEmpty()) {
+            ObjectNode definitions = tree.with("definitions");
+            for (String key : changes.getDefinitions()) {
+                if (!definitions.has(key)) {
+                    definitions.set(key, mapper.valueToTree(swagger.getDefinitions().get(key)));
+                }
+            }
+        }
+        if (changes.getTags()) {
+            ArrayNode tags = tree.withArray("tags");
+            Set<String> names = new HashSet<>();
+            tags.forEach(tag -> names.add(tag.path("name").asText()));
+            for (Tag tag : swagger.getTags()) {
+                if (names.add(tag.getName())) {
+                    tags.add(mapper.<ObjectNode>valueToTree(tag));
+                }
+            }
+        }
+    }
+
+    public static void writeYaml(final Swagger swagger, final String filePath) throws IOException {
+        try (OutputStream out = newFileStream(filePath)) {
+            writeYaml(swagger, out);
+        }
         LOGGER.debug("Spark-Swagger: Swagger definitions saved as "+filePath+" [YAML]");
     }
 
     public static void writeJson(final Swagger swagger, final String filePath) throws IOException {
-        LOGGER.debug("Spark-Swagger: Start parsing Swagger definitions");
-        // Create an ObjectMapper mapper for JSON
-        ObjectMapper mapper = new ObjectMapper(new JsonFactory());
-        mapper.setSerializationInclusion(Include.NON_NULL);
-        // Parse endpoints
-        swagger.parse();
-        mapper.writeValue(new File(filePath), swagger);
+        try (OutputStream out = newFileStream(filePath)) {
+            writeJson(swagger, out);
+        }
         LOGGER.debug("Spark-Swagger: Swagger definitions saved as "+filePath+" [JSON]");
     }
 
     public static void writeJs(final Swagger swagger, final String filePath) throws IOException {
-        LOGGER.debug("Spark-Swagger: Start parsing Swagger definitions");
-        // Create an ObjectMapper mapper for JSON
-        ObjectMapper mapper = new ObjectMapper(new JsonFactory());
-        mapper.setSerializationInclusion(Include.NON_NULL);
-        // Parse endpoints
-        swagger.parse();
+        try (OutputStream out = newFileStream(filePath)) {
+            writeJs(swagger, out);
+        }
+        LOGGER.debug("Spark-Swagger: Swagger definitions saved as "+filePath+" [JS]");
+    }
 
-        String js = mapper.writeValueAsString(swagger);
-        js = "window.swaggerSpec=" + js;
+    /**
+     * Streams the definitions as YAML. Nothing but the generator buffer is held in memory, the stream is left open.
+     * The model is held while streaming, as when rendering.
+     */
+    public static void writeYaml(final Swagger swagger, final OutputStream out) throws IOException {
+        synchronized (swagger) {
+            // Parse endpoints
+            swagger.parse();
+            stream(SpecFormat.YAML, swagger, out);
+        }
+    }
 
-        File uiFolder = new File(filePath);
-        uiFolder.delete();
+    /**
+     * Streams the definitions as JSON. Nothing but the generator buffer is held in memory, the stream is left open.
+     * The model is held while streaming, as when rendering.
+     */
+    public static void writeJson(final Swagger swagger, final OutputStream out) throws IOException {
+        synchronized (swagger) {
+            // Parse endpoints
+            swagger.parse();
+            stream(SpecFormat.JSON, swagger, out);
+        }
+    }
 
-        try (PrintWriter out = new PrintWriter(filePath)) {
-            out.println(js);
+    /**
+     * Streams the definitions as the script loaded by the UI: the JS prefix followed by the JSON document. The
+     * model is held while streaming, as when rendering.
+     */
+    public static void writeJs(final Swagger swagger, final OutputStream out) throws IOException {
+        synchronized (swagger) {
+            // Parse endpoints
+            swagger.parse();
+            out.write(JS_PREFIX);
+            stream(SpecFormat.JSON, swagger, out);
+        }
+    }
+
+    private static void stream(final SpecFormat format, final Swagger swagger, final OutputStream out) throws IOException {
+        try (JsonGenerator generator = format.getMapper().getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            // Closing the generator flushes it, the target belongs to the caller
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            format.getWriter().writeValue(generator, swagger);
+        }
+    }
+
+    private static OutputStream newFileStream(final String filePath) throws IOException {
+        return new BufferedOutputStream(Files.newOutputStream(Paths.get(filePath)), STREAM_BUFFER_SIZE);
+    }
+
+    static byte[] toJs(final byte[] json) {
+        byte[] js = new byte[JS_PREFIX.length + json.length];
+        System.arraycopy(JS_PREFIX, 0, js, 0, JS_PREFIX.length);
+        System.arraycopy(json, 0, js, JS_PREFIX.length, json.length);
+        return js;
+    }
+
+    private static byte[] readResource(final String path) throws IOException {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = SwaggerParser.class.getClassLoader();
+        }
+        try (InputStream resource = classLoader.getResourceAsStream(path)) {
+            if (resource == null) {
+                return null;
+            }
+            ByteArrayOutputStream content = new ByteArrayOutputStream(Math.max(resource.available(), 1024));
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = resource.read(buffer)) != -1) {
+                content.write(buffer, 0, read);
+            }
+            return content.toByteArray();
+        }
+    }
+
+    private static byte[] toBytes(final SpecFormat format, final Swagger swagger) {
+        try {
+            return format.getWriter().writeValueAsBytes(swagger);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        LOGGER.debug("Spark-Swagger: Swagger definitions saved as "+filePath+" [JS]");
     }
 }
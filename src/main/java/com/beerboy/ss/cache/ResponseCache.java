@@ -0,0 +1,246 @@
+package com.beerboy.ss.cache;
+
+import com.beerboy.ss.descriptor.CachePolicy;
+import com.beerboy.ss.descriptor.ParameterDescriptor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import javax.servlet.http.HttpServletResponse;
+
+import spark.Request;
+import spark.Route;
+
+/**
+ * Cache of the serialized responses of a GET operation, bounded by the entries of its {@link CachePolicy}.
+ * <p>
+ * Admission follows W-TinyLFU: new responses enter a small window, and a response leaving the window only replaces
+ * the oldest response of the main area when its key was requested more often recently, as estimated by a
+ * {@link FrequencySketch}. Responses that lose get a second chance at the end of the main area. One-off requests
+ * therefore never push out the responses of popular keys.
+ * <p>
+ * Hits are lock-free, only storing a response takes the lock of the cache.
+ *
+ * @author manusant
+ */
+public final class ResponseCache {
+
+    private final String method;
+    private final String path;
+    private final CachePolicy policy;
+    private final long ttlNanos;
+    private final KeyParam[] keyParams;
+    private final int windowSize;
+    private final int mainSize;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final FrequencySketch sketch;
+    // Keys in insertion order, guarded by this
+    private final LinkedHashMap<String, Boolean> window = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Boolean> main = new LinkedHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongSupplier clock;
+
+    ResponseCache(final String method, final String path, final CachePolicy policy, final Collection<ParameterDescriptor> parameters) {
+        this(method, path, policy, parameters, System::nanoTime);
+    }
+
+    ResponseCache(final String method, final String path, final CachePolicy policy, final Collection<ParameterDescriptor> parameters, final LongSupplier clock) {
+        this.method = method;
+        this.path = path;
+        this.policy = policy;
+        this.ttlNanos = policy.getTtl().toNanos();
+        this.keyParams = policy.getKeyParams().stream().map(name -> KeyParam.of(name, parameters)).toArray(KeyParam[]::new);
+        this.windowSize = Math.max(1, policy.getMaxEntries() / 100);
+        this.mainSize = policy.getMaxEntries() - windowSize;
+        this.sketch = new FrequencySketch(policy.getMaxEntries());
+        this.clock = clock;
+    }
+
+    /**
+     * Serves the requests of a route from the cache. Only successful responses serialized by the route, as a String
+     * or bytes, are stored, along with their status and content type.
+     */
+    public Route wrap(final Route route) {
+        return (request, response) -> {
+            String key = key(request);
+            sketch.increment(key);
+            long now = clock.getAsLong();
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (now - entry.expires < 0) {
+                    hits.increment();
+                    HttpServletResponse raw = response.raw();
+                    raw.setStatus(entry.status);
+                    if (entry.contentType != null) {
+                        raw.setContentType(entry.contentType);
+                    }
+                    return entry.body;
+                }
+                entries.remove(key, entry);
+            }
+            misses.increment();
+            Object result = route.handle(request, response);
+            HttpServletResponse raw = response.raw();
+            if (raw.getStatus() == 200 && !raw.isCommitted()) {
+                byte[] body = result instanceof String ? ((String) result).getBytes(StandardCharsets.UTF_8)
+                        : result instanceof byte[] ? (byte[]) result : null;
+                if (body != null) {
+                    put(key, new Entry(body, raw.getStatus(), raw.getContentType(), now + ttlNanos));
+                }
+            }
+            return result;
+        };
+    }
+
+    private synchronized void put(final String key, final Entry entry) {
+        boolean present = entries.put(key, entry) != null;
+        if (present && (window.containsKey(key) || main.containsKey(key))) {
+            return;
+        }
+        window.put(key, Boolean.TRUE);
+        if (window.size() <= windowSize) {
+            return;
+        }
+        String candidate = poll(window);
+        if (main.size() < mainSize) {
+            main.put(candidate, Boolean.TRUE);
+            return;
+        }
+        String victim = poll(main);
+        if (victim == null) {
+            entries.remove(candidate);
+        } else if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+            entries.remove(victim);
+            main.put(candidate, Boolean.TRUE);
+        } else {
+            entries.remove(candidate);
+            main.put(victim, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Removes the oldest key of an area still holding a response, dropping keys whose response expired.
+     */
+    private String poll(final LinkedHashMap<String, Boolean> area) {
+        Iterator<String> keys = area.keySet().iterator();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            keys.remove();
+            if (entries.containsKey(key)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    private String key(final Request request) {
+        if (keyParams.length == 0) {
+            String query = request.raw().getQueryString();
+            return query == null ? request.uri() : request.uri() + '?' + query;
+        }
+        StringBuilder key = new StringBuilder(request.uri());
+        for (KeyParam param : keyParams) {
+            String value = param.value(request);
+            // Length prefixed so values can't run into each other
+            key.append('\n');
+            if (value != null) {
+                key.append(value.length()).append(':').append(value);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Removes every response, they are computed again on the next requests.
+     */
+    public synchronized void invalidate() {
+        entries.clear();
+        window.clear();
+        main.clear();
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public CachePolicy getPolicy() {
+        return policy;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Number of responses held, including expired ones not yet removed.
+     */
+    public int getSize() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+
+        private final byte[] body;
+        private final int status;
+        private final String contentType;
+        private final long expires;
+
+        private Entry(final byte[] body, final int status, final String contentType, final long expires) {
+            this.body = body;
+            this.status = status;
+            this.contentType = contentType;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * Parameter forming the key, read from the path, a header or the query string depending on its declared type.
+     */
+    private static final class KeyParam {
+
+        private final String name;
+        private final ParameterDescriptor.ParameterType type;
+
+        private KeyParam(final String name, final ParameterDescriptor.ParameterType type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        static KeyParam of(final String name, final Collection<ParameterDescriptor> parameters) {
+            for (ParameterDescriptor parameter : parameters) {
+                if (name.equals(parameter.getName()) && parameter.getType() != null) {
+                    return new KeyParam(name, parameter.getType());
+                }
+            }
+            return new KeyParam(name, ParameterDescriptor.ParameterType.QUERY);
+        }
+
+        String value(final Request request) {
+            switch (type) {
+                case PATH:
+                    return request.params(name);
+                case HEADER:
+                    return request.headers(name);
+                default:
+                    return request.queryParams(name);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.beerboy.ss.cache;
+
+import com.beerboy.ss.descriptor.CachePolicy;
+import com.beerboy.ss.descriptor.ParameterDescriptor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Response caches of the operations of a service, keyed by HTTP method and path template.
+ *
+ * @author manusant
+ */
+public final class ResponseCaches {
+
+    private final Map<String, ResponseCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the cache of an operation, replacing the cache of a previous binding.
+     */
+    public ResponseCache create(final String method, final String path, final CachePolicy policy, final Collection<ParameterDescriptor> parameters) {
+        String upperMethod = method.toUpperCase(Locale.ROOT);
+        ResponseCache cache = new ResponseCache(upperMethod, path, policy, parameters);
+        caches.put(upperMethod + " " + path, cache);
+        return cache;
+    }
+
+    /**
+     * Cache of an operation, null if it is not cached.
+     */
+    public ResponseCache get(final String method, final String path) {
+        return caches.get(method.toUpperCase(Locale.ROOT) + " " + path);
+    }
+
+    public Collection<ResponseCache> getCaches() {
+        return Collections.unmodifiableCollection(new ArrayList<>(caches.values()));
+    }
+}
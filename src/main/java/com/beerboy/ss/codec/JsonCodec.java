@@ -0,0 +1,88 @@
+package com.beerboy.ss.codec;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import spark.Request;
+
+/**
+ * Reads and writes values of a single type with a type adapter resolved once. Values are decoded straight from
+ * the servlet input stream and encoded into a reusable per thread buffer sent to the servlet output stream,
+ * without materializing bodies as Strings.
+ *
+ * @author manusant
+ */
+public final class JsonCodec<T> {
+
+    private static final ThreadLocal<ResponseBuffer> BUFFERS = ThreadLocal.withInitial(ResponseBuffer::new);
+
+    private final Gson gson;
+    private final TypeAdapter<T> adapter;
+
+    JsonCodec(final Gson gson, final TypeAdapter<T> adapter) {
+        this.gson = gson;
+        this.adapter = adapter;
+    }
+
+    /**
+     * Decodes the body of a request, in the charset of the request or UTF-8.
+     *
+     * @throws IOException if the body is empty, is not a valid JSON document of this type or is followed by anything
+     *                     else, or if the charset of the request is not supported
+     */
+    public T read(final Request request) throws IOException {
+        HttpServletRequest raw = request.raw();
+        try (JsonReader reader = new JsonReader(new InputStreamReader(raw.getInputStream(), charset(raw.getCharacterEncoding())))) {
+            // Same leniency as Gson.fromJson
+            reader.setLenient(true);
+            T value = adapter.read(reader);
+            // Same as Gson.fromJson, nothing may follow the document
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new IOException("Unexpected content after the JSON document");
+            }
+            return value;
+        } catch (RuntimeException e) {
+            // Syntax and type mismatches are reported by adapters as unchecked exceptions
+            throw new IOException("Invalid JSON document", e);
+        }
+    }
+
+    /**
+     * Encodes a value as the JSON body of a response. The content type is set to JSON unless already set.
+     */
+    public void write(final T value, final HttpServletResponse response) throws IOException {
+        if (response.getContentType() == null) {
+            response.setContentType("application/json; charset=utf-8");
+        }
+        ResponseBuffer buffer = BUFFERS.get();
+        try {
+            // Writer settings of the Gson instance, such as null serialization and pretty printing
+            JsonWriter writer = gson.newJsonWriter(buffer.open(response));
+            adapter.write(writer, value);
+            writer.flush();
+            buffer.finish();
+        } catch (IOException | RuntimeException e) {
+            // The encoder of the buffer may hold part of this value, it is not reused
+            BUFFERS.remove();
+            throw e;
+        }
+    }
+
+    private static Charset charset(final String encoding) {
+        if (encoding == null || encoding.equalsIgnoreCase("UTF-8")) {
+            return StandardCharsets.UTF_8;
+        }
+        return Charset.forName(encoding);
+    }
+}
@@ -0,0 +1,48 @@
+package com.beerboy.ss.codec;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Codecs of the request and response types of a service, resolved once per type and shared by every route.
+ *
+ * @author manusant
+ */
+public final class JsonCodecs {
+
+    private volatile Gson gson;
+    private final ConcurrentHashMap<Type, JsonCodec<?>> codecs = new ConcurrentHashMap<>();
+
+    public JsonCodecs() {
+        this(new Gson());
+    }
+
+    public JsonCodecs(final Gson gson) {
+        this.gson = gson;
+    }
+
+    public Gson getGson() {
+        return gson;
+    }
+
+    /**
+     * Replaces the Gson instance, codecs resolved so far are dropped. Routes already bound keep their codecs.
+     */
+    public void setGson(final Gson gson) {
+        this.gson = gson;
+        this.codecs.clear();
+    }
+
+    /**
+     * Codec of a type, or of a list of that type.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> JsonCodec<T> codec(final Class<?> type, final boolean collection) {
+        Type key = collection ? TypeToken.getParameterized(List.class, type).getType() : type;
+        return (JsonCodec<T>) codecs.computeIfAbsent(key, t -> new JsonCodec<>(gson, gson.getAdapter(TypeToken.get(t))));
+    }
+}
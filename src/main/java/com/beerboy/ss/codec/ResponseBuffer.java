@@ -0,0 +1,88 @@
+package com.beerboy.ss.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Reusable per thread buffer of a response being written. Responses fitting the buffer are sent with their
+ * length, larger ones are flushed to the servlet stream every time the buffer fills up, so memory stays bounded
+ * whatever the size of the response.
+ *
+ * @author manusant
+ */
+final class ResponseBuffer extends OutputStream {
+
+    private static final int SIZE = 32 * 1024;
+
+    private final byte[] bytes = new byte[SIZE];
+    // Bound to this buffer, the encoder and its buffers are reused along with it
+    private final Writer writer = new OutputStreamWriter(this, StandardCharsets.UTF_8);
+    private HttpServletResponse target;
+    private OutputStream out;
+    private int count;
+
+    Writer open(final HttpServletResponse target) {
+        this.target = target;
+        this.out = null;
+        this.count = 0;
+        return writer;
+    }
+
+    /**
+     * Sends what is left in the buffer, with the content length when nothing was flushed before.
+     */
+    void finish() throws IOException {
+        if (out == null) {
+            target.setContentLength(count);
+            out = target.getOutputStream();
+        }
+        out.write(bytes, 0, count);
+        release();
+    }
+
+    void release() {
+        this.target = null;
+        this.out = null;
+        this.count = 0;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        if (count == bytes.length) {
+            spill();
+        }
+        bytes[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(final byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (count == bytes.length) {
+                spill();
+            }
+            int length = Math.min(len, bytes.length - count);
+            System.arraycopy(b, off, bytes, count, length);
+            count += length;
+            off += length;
+            len -= length;
+        }
+    }
+
+    @Override
+    public void flush() {
+        // Writers flush once the value is written, the buffer is only sent when full or finished
+    }
+
+    private void spill() throws IOException {
+        if (out == null) {
+            out = target.getOutputStream();
+        }
+        out.write(bytes, 0, count);
+        count = 0;
+    }
+}
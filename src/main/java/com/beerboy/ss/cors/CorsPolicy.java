@@ -0,0 +1,174 @@
+package com.beerboy.ss.cors;
+
+import com.beerboy.ss.ConfigCors;
+import com.beerboy.ss.PathTree;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.BiPredicate;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import spark.Request;
+import spark.Response;
+
+/**
+ * CORS headers of a service. Header values are computed once from the configuration and from the methods bound
+ * on each path, requests only look up the origin and set precomputed values.
+ * <p>
+ * Preflight responses allow the methods documented for the requested path and are cached by browsers for
+ * {@code maxAge} seconds.
+ *
+ * @author manusant
+ */
+public final class CorsPolicy {
+
+    private static final String ALLOW_ORIGIN = "Access-Control-Allow-Origin";
+    private static final String ALLOW_CREDENTIALS = "Access-Control-Allow-Credentials";
+    private static final String ALLOW_METHODS = "Access-Control-Allow-Methods";
+    private static final String ALLOW_HEADERS = "Access-Control-Allow-Headers";
+    private static final String EXPOSE_HEADERS = "Access-Control-Expose-Headers";
+    private static final String MAX_AGE = "Access-Control-Max-Age";
+    private static final String REQUEST_METHOD = "Access-Control-Request-Method";
+    private static final String REQUEST_HEADERS = "Access-Control-Request-Headers";
+    private static final String OPTIONS = "OPTIONS";
+    private static final BiPredicate<PathMethods, String> HAS_METHOD = (methods, method) -> methods.methods.contains(method);
+    private static final BiPredicate<PathMethods, String> ANY = (methods, method) -> true;
+
+    private final boolean anyOrigin;
+    private final Set<String> origins;
+    private final boolean credentials;
+    // Null when not configured
+    private final String allowedHeaders;
+    private final String exposedHeaders;
+    private final String maxAge;
+    // Methods by route path, only updated while binding
+    private final PathTree<PathMethods> paths = new PathTree<>(false);
+    private volatile Set<String> methodUnion = Collections.emptySet();
+    private volatile String allMethods = OPTIONS;
+
+    /**
+     * @throws IllegalArgumentException when credentials are allowed for any origin, which would let any site make
+     *                                  credentialed calls
+     */
+    public CorsPolicy(final ConfigCors config) {
+        if (config.getAllowCredentials() && config.getAllowedOrigins().contains("*")) {
+            throw new IllegalArgumentException("CORS credentials require an explicit list of allowed origins, not *");
+        }
+        this.anyOrigin = config.getAllowedOrigins().contains("*");
+        this.origins = Collections.unmodifiableSet(new HashSet<>(config.getAllowedOrigins()));
+        this.credentials = config.getAllowCredentials();
+        this.allowedHeaders = config.getAllowedHeaders().isEmpty() ? null : String.join(", ", config.getAllowedHeaders());
+        this.exposedHeaders = config.getExposedHeaders().isEmpty() ? null : String.join(", ", config.getExposedHeaders());
+        this.maxAge = String.valueOf(config.getMaxAge());
+    }
+
+    /**
+     * Allows preflight requests of an HTTP method on a route path, in Spark syntax.
+     */
+    public synchronized void allow(final String method, final String path) {
+        String upperMethod = method.toUpperCase(Locale.ROOT);
+        paths.update(path, methods -> (methods != null ? methods : PathMethods.EMPTY).with(upperMethod));
+        if (!methodUnion.contains(upperMethod)) {
+            Set<String> next = new TreeSet<>(methodUnion);
+            next.add(upperMethod);
+            this.methodUnion = Collections.unmodifiableSet(next);
+            this.allMethods = join(next);
+        }
+    }
+
+    /**
+     * Sets the origin headers of a response, when the origin of the request is allowed.
+     */
+    public void apply(final Request request, final Response response) {
+        HttpServletResponse raw = response.raw();
+        if (anyOrigin) {
+            raw.setHeader(ALLOW_ORIGIN, "*");
+        } else {
+            String origin = request.raw().getHeader("Origin");
+            if (origin == null || !origins.contains(origin)) {
+                return;
+            }
+            raw.setHeader(ALLOW_ORIGIN, origin);
+            raw.addHeader("Vary", "Origin");
+            if (credentials) {
+                raw.setHeader(ALLOW_CREDENTIALS, "true");
+            }
+        }
+        if (exposedHeaders != null) {
+            raw.setHeader(EXPOSE_HEADERS, exposedHeaders);
+        }
+    }
+
+    /**
+     * Answers OPTIONS requests. Preflights from allowed origins get the methods of the requested path, or of every
+     * path when it was not bound, along with the allowed headers and max age.
+     */
+    public Object preflight(final Request request, final Response response) {
+        HttpServletRequest rawRequest = request.raw();
+        HttpServletResponse raw = response.raw();
+        if (rawRequest.getHeader(REQUEST_METHOD) == null) {
+            return "OK";
+        }
+        if (raw.containsHeader(ALLOW_ORIGIN)) {
+            raw.setHeader(ALLOW_METHODS, methods(rawRequest.getRequestURI(), rawRequest.getHeader(REQUEST_METHOD)));
+            String headers = allowedHeaders != null ? allowedHeaders : rawRequest.getHeader(REQUEST_HEADERS);
+            if (headers != null) {
+                raw.setHeader(ALLOW_HEADERS, headers);
+            }
+            raw.setHeader(MAX_AGE, maxAge);
+        }
+        response.status(204);
+        return "";
+    }
+
+    /**
+     * Methods allowed on a request path. Paths allowing the requested method are preferred, static segments over
+     * parameters as when routing, then any matching path. Unbound paths get the methods of every path.
+     */
+    String methods(final String requestPath, final String requestMethod) {
+        int[] bounds = new int[PathTree.maxCaptures(requestPath) * 2];
+        String method = requestMethod != null ? requestMethod.toUpperCase(Locale.ROOT) : null;
+        PathMethods methods = method != null ? paths.find(requestPath, bounds, HAS_METHOD, method) : null;
+        if (methods == null) {
+            methods = paths.find(requestPath, bounds, ANY, null);
+        }
+        return methods != null ? methods.allowed : allMethods;
+    }
+
+    private static String join(final Set<String> methods) {
+        StringBuilder joined = new StringBuilder();
+        for (String method : methods) {
+            if (!method.equals(OPTIONS)) {
+                joined.append(method).append(", ");
+            }
+        }
+        return joined.append(OPTIONS).toString();
+    }
+
+    private static final class PathMethods {
+
+        private static final PathMethods EMPTY = new PathMethods(Collections.emptySet());
+
+        private final Set<String> methods;
+        private final String allowed;
+
+        private PathMethods(final Set<String> methods) {
+            this.methods = methods;
+            this.allowed = join(methods);
+        }
+
+        private PathMethods with(final String method) {
+            if (methods.contains(method)) {
+                return this;
+            }
+            Set<String> next = new TreeSet<>(methods);
+            next.add(method);
+            return new PathMethods(Collections.unmodifiableSet(next));
+        }
+    }
+}
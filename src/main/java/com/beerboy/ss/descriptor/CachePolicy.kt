@@ -0,0 +1,18 @@
+package com.beerboy.ss.descriptor
+
+import java.time.Duration
+
+/**
+ * Server side caching of the responses of a GET operation. Responses are kept for [ttl], at most [maxEntries] of
+ * them, keyed by the request path and the values of [keyParams]. The whole query string is part of the key when no
+ * key params are given.
+ *
+ * @author manusant
+ */
+class CachePolicy(val ttl: Duration, val maxEntries: Int, val keyParams: List<String> = emptyList()) {
+
+    init {
+        require(!ttl.isNegative && !ttl.isZero) { "Cache TTL must be positive" }
+        require(maxEntries > 0) { "Cache max entries must be positive" }
+    }
+}
@@ -4,6 +4,7 @@ import com.beerboy.ss.model.ExternalDocs
 import com.beerboy.ss.model.HttpMethod
 import com.beerboy.ss.model.Response
 import com.beerboy.ss.rest.RestResponse
+import java.time.Duration
 import java.util.*
 import kotlin.reflect.KClass
 
@@ -20,6 +21,8 @@ class MethodDescriptor {
     var isRequestAsCollection: Boolean = false
     var responseType: KClass<*>? = null
     var isResponseAsCollection: Boolean = false
+    var isResponseStreamed: Boolean = false
+    var cachePolicy: CachePolicy? = null
     var operationId: String? = null
     var consumes: List<String>? = null
     var produces: List<String>? = null
@@ -37,6 +40,8 @@ class MethodDescriptor {
         private var requestAsCollection: Boolean = false
         private var responseType: KClass<*>? = null
         private var responseAsCollection: Boolean = false
+        private var responseStreamed: Boolean = false
+        private var cachePolicy: CachePolicy? = null
         private var operationId: String? = null
         private var consumes: List<String>? = null
         private var produces: List<String>? = null
@@ -92,6 +97,27 @@ class MethodDescriptor {
             return this
         }
 
+        /**
+         * Writes the objects returned by the route straight to the response as JSON of the response type, instead
+         * of converting them to a String first.
+         */
+        fun withStreamedResponse(): Builder {
+            this.responseStreamed = true
+            return this
+        }
+
+        /**
+         * Serves repeated GET requests from a cache of serialized responses, see [CachePolicy].
+         */
+        fun withCache(cachePolicy: CachePolicy): Builder {
+            this.cachePolicy = cachePolicy
+            return this
+        }
+
+        fun withCache(ttl: Duration, maxEntries: Int, vararg keyParams: String): Builder {
+            return withCache(CachePolicy(ttl, maxEntries, keyParams.toList()))
+        }
+
         fun withOperationId(operationId: String): Builder {
             this.operationId = operationId
             return this
@@ -172,6 +198,8 @@ class MethodDescriptor {
             methodDescriptor.isRequestAsCollection = requestAsCollection
             methodDescriptor.responseType = responseType
             methodDescriptor.isResponseAsCollection = responseAsCollection
+            methodDescriptor.isResponseStreamed = responseStreamed
+            methodDescriptor.cachePolicy = cachePolicy
             methodDescriptor.operationId = operationId
             methodDescriptor.consumes = consumes
             methodDescriptor.produces = produces
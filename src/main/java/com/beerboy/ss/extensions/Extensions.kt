@@ -13,10 +13,14 @@ fun <T : Any?> T.print(): T = this.apply {
     println("$this at $className.$methodName($fileName:$lineNumber)")
 }
 
-val Any.json: String get() = Gson().toJson(this)
+// Gson is thread safe, type adapters are cached by the instance
+@PublishedApi
+internal val gson = Gson()
+
+val Any.json: String get() = gson.toJson(this)
 val String.urlEncoded: String get() = UrlEncoded.encodeString(this)
-inline fun <reified T : Any> String.parseJson() :T  = Gson().fromJson(this, T::class.java)
-fun <T : Any> String.parseJson(klass: KClass<T>) :T  = Gson().fromJson(this, klass.java)
+inline fun <reified T : Any> String.parseJson() :T  = gson.fromJson(this, T::class.java)
+fun <T : Any> String.parseJson(klass: KClass<T>) :T  = gson.fromJson(this, klass.java)
 
 abstract class Sealed {
     val type: String = this::class.simpleName!!
@@ -8,149 +8,245 @@ import com.beerboy.ss.model.properties.*
 import com.beerboy.ss.model.utils.PropertyModelConverter
 import java.io.File
 import java.util.*
-import kotlin.reflect.KCallable
+import java.util.concurrent.ConcurrentHashMap
 import kotlin.reflect.KClass
 import kotlin.reflect.KType
-import kotlin.reflect.KVisibility
-import kotlin.reflect.full.declaredMemberProperties
-import kotlin.reflect.full.primaryConstructor
 import kotlin.reflect.jvm.jvmErasure
 
 /**
+ * Creates definitions and properties from types. An instance is scoped to one spec generation and can be used by
+ * several threads at once. Types are introspected through a pluggable [TypeIntrospector], kotlin-reflect by default.
+ *
  * @author manusant
  */
-object DefinitionsFactory {
-
-    var ignoreSpec: IgnoreSpec? = null
+@Suppress("PLATFORM_CLASS_MAPPED_TO_KOTLIN")
+class DefinitionsFactory @JvmOverloads constructor(
+        val introspector: TypeIntrospector = defaultIntrospector,
+        val ignoreSpec: IgnoreSpec? = null) {
+
+    // Definitions are shared by the operations of one generation
+    private val definitionsCache = ConcurrentHashMap<Class<*>, Map<String, Model>>()
+    // Introspection results are shared by every generation using the same backend
+    private val propertiesCache = propertiesCache(introspector)
+
+    companion object {
+
+        /**
+         * Reflection backend of factories created without one, [JavaTypeIntrospector] avoids initializing kotlin-reflect.
+         */
+        @JvmStatic
+        @Volatile
+        var defaultIntrospector: TypeIntrospector = KotlinTypeIntrospector()
+
+        private val propertiesCaches = Collections.synchronizedMap(WeakHashMap<TypeIntrospector, ConcurrentHashMap<Class<*>, List<PropertyInfo>>>())
+        private val enumCache = ConcurrentHashMap<Class<*>, List<String>>()
+
+        private fun propertiesCache(introspector: TypeIntrospector): ConcurrentHashMap<Class<*>, List<PropertyInfo>> =
+                propertiesCaches.getOrPut(introspector) { ConcurrentHashMap() }
+    }
 
-    fun create(type: KType): Map<String, Model> {
+    /**
+     * Types reached while building definitions. In graph mode every referenced class gets a single definition
+     * and properties point to it with a $ref, so each class is parsed once whatever the shape of the graph.
+     * In inline mode nested objects are expanded in place, back-references to a class being expanded become $ref.
+     */
+    private class Graph(val inline: Boolean) {
         val definitions = HashMap<String, Model>()
+        val defined = HashSet<Class<*>>()
+        val expanding = HashSet<Class<*>>()
+    }
 
-        if (isObject(type)) {
-            val model = ModelImpl()
-            model.type = ModelImpl.OBJECT
-            definitions[type.jvmErasure.simpleName!!] = model
+    fun create(type: KType): Map<String, Model> = create(type.jvmErasure.java)
 
-            val refDefinitions = parseProperties(model, type.jvmErasure)
-            definitions.putAll(refDefinitions)
+    /**
+     * Creates the definitions for the given type and the types it references. Definitions are cached per type,
+     * returned models are shared and must not be modified.
+     */
+    fun create(type: Class<*>): Map<String, Model> {
+        val cached = definitionsCache[type]
+        if (cached != null) {
+            return HashMap(cached)
         }
-        return definitions
+        val graph = Graph(false)
+
+        if (isObject(type)) {
+            define(type, graph)
+        }
+        definitionsCache.putIfAbsent(type, Collections.unmodifiableMap(HashMap(graph.definitions)))
+        return graph.definitions
     }
 
+    /**
+     * Adds the properties of the given class to the model and returns the definitions of the types they reference.
+     */
     fun parseProperties(model: ModelImpl, klass: KClass<*>): Map<String, Model> {
-        val refDefinitions = HashMap<String, Model>()
-
-        val fields: Collection<KCallable<*>> = klass.declaredMemberProperties
-
-        for (field in fields) {
-            if (isViable(field)) {
-                val property = createProperty(field.returnType)
-
-                klass.primaryConstructor?.parameters?.forEach {
-                    if (it.name == field.name) {
-                        it.annotations.forEach {
-                            if (it is Description) {
-                                property.description = it.value
-                            }
-                        }
-
-                    }
-                }
-
-                model.addProperty(field.name, property)
-
-                if (isRef(field.returnType)) {
-                    val definitions = create(field.returnType)
-                    refDefinitions.putAll(definitions)
-                } else if (field.returnType.javaClass.isArray || Collection::class.java.isAssignableFrom(field.returnType.jvmErasure.java)) {
-                    val childType = getCollectionType(field.returnType)
-                    if (isRef(childType)) {
-                        val definitions = create(childType)
-                        refDefinitions.putAll(definitions)
-                    }
-                }
+        val graph = Graph(false)
+        graph.defined.add(klass.java)
+        parseProperties(model, klass.java, graph)
+        return graph.definitions
+    }
+
+    private fun parseProperties(model: ModelImpl, type: Class<*>, graph: Graph) {
+        for (field in propertiesOf(type)) {
+            val property = createProperty(field.type, graph)
+            if (field.description != null) {
+                property.description = field.description
             }
+            model.addProperty(field.name, property)
+        }
+    }
+
+    private fun define(type: Class<*>, graph: Graph) {
+        if (!graph.defined.add(type)) {
+            return
         }
-        return refDefinitions
+        val model = ModelImpl()
+        model.type = ModelImpl.OBJECT
+        // Registered before parsing so back-references find it
+        graph.definitions[type.simpleName] = model
+        parseProperties(model, type, graph)
     }
 
-    private fun isViable(field: KCallable<*>): Boolean {
-        return field.visibility == KVisibility.PUBLIC
+    /**
+     * Variants of a sealed class, as listed by [SealedProperty]. Objects referenced by the variants are expanded inline.
+     */
+    fun sealedVariants(klass: KClass<*>): List<Model> {
+        val graph = Graph(true)
+        graph.expanding.add(klass.java)
+        return sealedVariants(klass.java, graph)
     }
 
-    fun createProperty(fieldType: KType): Property {
-        val fieldClass = fieldType.jvmErasure
+    /**
+     * Expands a sealed class in place with its variants. A variant referencing the sealed class being expanded gets
+     * a $ref instead, to a definition of the sealed class holding the same variants.
+     */
+    private fun sealedProperty(type: Class<*>, graph: Graph): Property {
+        if (!graph.expanding.add(type)) {
+            graph.defined.add(type)
+            return RefProperty(type.simpleName)
+        }
+        try {
+            val variants = sealedVariants(type, graph)
+            if (type in graph.defined) {
+                graph.definitions[type.simpleName] = SealedModel(variants)
+            }
+            return SealedProperty(type.simpleName, variants)
+        } finally {
+            graph.expanding.remove(type)
+        }
+    }
+
+    private fun sealedVariants(type: Class<*>, graph: Graph): List<Model> =
+            introspector.sealedSubclasses(type).map {
+                val model = ModelImpl()
+                model.type = ModelImpl.OBJECT
+                parseProperties(model, it, graph)
+                val stringProperty = StringProperty()
+                stringProperty.enum = listOf(it.simpleName)
+                model.addProperty("type", stringProperty)
+                model
+            }
+
+    private fun propertiesOf(type: Class<*>): List<PropertyInfo> {
+        val cached = propertiesCache[type]
+        if (cached != null) {
+            return cached
+        }
+        val properties = introspector.properties(type)
+        propertiesCache.putIfAbsent(type, properties)
+        return properties
+    }
+
+    private fun enumNames(type: Class<*>): List<String> =
+            enumCache.getOrPut(type) { type.enumConstants.map { o -> (o as Enum<*>).name } }
+
+    /**
+     * Creates a standalone property for the given type, nested objects are expanded inline.
+     */
+    fun createProperty(fieldType: KType): Property =
+            createProperty(KotlinTypeIntrospector.KotlinTypeRef(fieldType), Graph(true))
+
+    fun createProperty(fieldType: Class<*>): Property = createProperty(introspector.typeOf(fieldType), Graph(true))
+
+    private fun createProperty(fieldType: TypeRef, graph: Graph): Property {
+        val fieldClass = fieldType.rawType
         return when {
-            fieldType.jvmErasure.java.isEnum -> {
+            fieldClass.isEnum -> {
                 val property = StringProperty()
-                property._enum(fieldType.jvmErasure.java.enumConstants.map { o -> (o as Enum<*>).name })
-            }
-            fieldClass == Boolean::class -> BooleanProperty()
-            fieldClass == ByteArray::class -> ByteArrayProperty()
-            fieldClass == Date::class -> DateProperty()
-            fieldClass == Number::class -> DecimalProperty()
-            fieldClass == Double::class -> DoubleProperty()
-            fieldClass == Float::class -> FloatProperty()
-            fieldClass == Int::class -> IntegerProperty()
-            fieldClass == Long::class -> LongProperty()
-            fieldClass == String::class -> StringProperty()
-            fieldClass == UUID::class -> UUIDProperty()
-            Sealed::class.java.isAssignableFrom(fieldClass.java) && fieldClass.isSealed -> {
-                SealedProperty(fieldClass.simpleName!!, fieldClass)
+                property._enum(ArrayList(enumNames(fieldClass)))
             }
-            fieldClass.java.isArray || Collection::class.java.isAssignableFrom(fieldClass.java) -> {
+            isBoolean(fieldClass) -> BooleanProperty()
+            fieldClass == ByteArray::class.java -> ByteArrayProperty()
+            fieldClass == Date::class.java -> DateProperty()
+            fieldClass == Number::class.java -> DecimalProperty()
+            isDouble(fieldClass) -> DoubleProperty()
+            isFloat(fieldClass) -> FloatProperty()
+            isInt(fieldClass) -> IntegerProperty()
+            isLong(fieldClass) -> LongProperty()
+            fieldClass == String::class.java -> StringProperty()
+            fieldClass == UUID::class.java -> UUIDProperty()
+            Sealed::class.java.isAssignableFrom(fieldClass) && introspector.isSealed(fieldClass) -> sealedProperty(fieldClass, graph)
+            isCollection(fieldClass) -> {
                 val property = ArrayProperty()
-                property.items = getCollectionProperty(fieldType)
+                property.items = createProperty(fieldType.elementType, graph)
                 property
             }
-            File::class.java.isAssignableFrom(fieldType.jvmErasure.java) -> FileProperty()
+            File::class.java.isAssignableFrom(fieldClass) -> FileProperty()
+            !graph.inline && isRef(fieldClass) -> {
+                define(fieldClass, graph)
+                RefProperty(fieldClass.simpleName)
+            }
+            !graph.expanding.add(fieldClass) -> RefProperty(fieldClass.simpleName)
             else -> {
-                val property = ObjectProperty()
                 val model = ModelImpl()
                 model.type = ModelImpl.OBJECT
-                parseProperties(model, fieldType.jvmErasure)
+                parseProperties(model, fieldClass, graph)
+                graph.expanding.remove(fieldClass)
                 PropertyModelConverter().modelToProperty(model)!!
             }
         }.apply {
-            required = !fieldType.isMarkedNullable
+            required = !fieldType.isNullable
         }
     }
 
-    private fun isRef(type: KType): Boolean = !(type.jvmErasure.java.isEnum
-            || type.jvmErasure == Boolean::class
-            || type.jvmErasure == Boolean::class
-            || type.jvmErasure == ByteArray::class
-            || type.jvmErasure == Date::class
-            || type.jvmErasure == java.sql.Date::class
-            || type.jvmErasure == Number::class
-            || type.jvmErasure == Double::class
-            || type.jvmErasure == Double::class
-            || type.jvmErasure == Float::class
-            || type.jvmErasure == Float::class
-            || type.jvmErasure == Int::class
-            || type.jvmErasure == Int::class
-            || type.jvmErasure == Long::class
-            || type.jvmErasure == Long::class
-            || type.jvmErasure == String::class
-            || type.jvmErasure == UUID::class
-            || type.jvmErasure.java.isArray
-            || Collection::class.java.isAssignableFrom(type.jvmErasure.java)
-            || File::class.java.isAssignableFrom(type.jvmErasure.java)
-            || type.jvmErasure.java.canonicalName.contains("java"))
-
-    private fun isObject(type: KType): Boolean = !(type.jvmErasure.java.isEnum
-            || type.jvmErasure == Boolean::class
-            || type.jvmErasure == ByteArray::class
-            || type.jvmErasure == Number::class
-            || type.jvmErasure == Double::class
-            || type.jvmErasure == Float::class
-            || type.jvmErasure == Int::class
-            || type.jvmErasure == Long::class
-            || type.jvmErasure == String::class)
-
-    private fun getCollectionProperty(collectionField: KType?): Property = createProperty(getCollectionType(collectionField))
-
-    private fun getCollectionType(collectionField: KType?): KType = collectionField?.arguments?.get(0)?.type!!
+    // Kotlin primitive types erase to either the primitive or the boxed class
+    private fun isBoolean(type: Class<*>) = type == Boolean::class.java || type == java.lang.Boolean::class.java
+
+    private fun isDouble(type: Class<*>) = type == Double::class.java || type == java.lang.Double::class.java
+
+    private fun isFloat(type: Class<*>) = type == Float::class.java || type == java.lang.Float::class.java
+
+    private fun isInt(type: Class<*>) = type == Int::class.java || type == java.lang.Integer::class.java
+
+    private fun isLong(type: Class<*>) = type == Long::class.java || type == java.lang.Long::class.java
+
+    private fun isCollection(type: Class<*>) = type.isArray || Collection::class.java.isAssignableFrom(type)
+
+    private fun isRef(type: Class<*>): Boolean = !(type.isEnum
+            || isBoolean(type)
+            || type == ByteArray::class.java
+            || type == Date::class.java
+            || type == java.sql.Date::class.java
+            || type == Number::class.java
+            || isDouble(type)
+            || isFloat(type)
+            || isInt(type)
+            || isLong(type)
+            || type == String::class.java
+            || type == UUID::class.java
+            || isCollection(type)
+            || File::class.java.isAssignableFrom(type)
+            || type.canonicalName.contains("java"))
+
+    private fun isObject(type: Class<*>): Boolean = !(type.isEnum
+            || isBoolean(type)
+            || type == ByteArray::class.java
+            || type == Number::class.java
+            || isDouble(type)
+            || isFloat(type)
+            || isInt(type)
+            || isLong(type)
+            || type == String::class.java)
 }
 
 @Target(AnnotationTarget.VALUE_PARAMETER)
@@ -0,0 +1,258 @@
+package com.beerboy.ss.factory;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Introspects types with plain Java reflection: properties are discovered from public fields and getters, and
+ * descriptions from the {@link Description} annotations of constructor parameters, matched by position.
+ * <p>
+ * Java reflection does not expose Kotlin nullability. Reference types are nullable when annotated with a runtime
+ * Nullable annotation, the nullability of Kotlin class properties is read from their {@link kotlin.Metadata}, so
+ * kotlin-reflect is never used. Generic arguments are always considered non nullable.
+ *
+ * @author manusant
+ */
+public class JavaTypeIntrospector implements TypeIntrospector {
+
+    @Override
+    public TypeRef typeOf(final Class<?> type) {
+        return new JavaTypeRef(type, false);
+    }
+
+    @Override
+    public List<PropertyInfo> properties(final Class<?> type) {
+        Field[] fields = type.getDeclaredFields();
+        Set<String> fieldNames = new HashSet<>();
+        for (Field field : fields) {
+            fieldNames.add(field.getName());
+        }
+
+        // Sorted by name, as kotlin-reflect lists them
+        Map<String, AnnotatedElement> members = new TreeMap<>();
+        Map<String, Type> types = new HashMap<>();
+        for (Field field : fields) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isPublic(modifiers) && !Modifier.isStatic(modifiers) && !field.isSynthetic()) {
+                members.put(field.getName(), field);
+                types.put(field.getName(), field.getGenericType());
+            }
+        }
+        for (Method method : type.getDeclaredMethods()) {
+            int modifiers = method.getModifiers();
+            if (!Modifier.isPublic(modifiers) || Modifier.isStatic(modifiers) || method.isSynthetic() || method.isBridge()
+                    || method.getParameterCount() != 0 || method.getReturnType() == void.class) {
+                continue;
+            }
+            String name = propertyName(method, fieldNames);
+            if (name != null && !members.containsKey(name)) {
+                members.put(name, method);
+                types.put(name, method.getGenericReturnType());
+            }
+        }
+        if (members.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<String, String> descriptions = descriptions(type, fields);
+        Map<String, Boolean> kotlinNullable = null;
+
+        List<PropertyInfo> properties = new ArrayList<>(members.size());
+        for (Map.Entry<String, AnnotatedElement> member : members.entrySet()) {
+            String name = member.getKey();
+            Type propertyType = types.get(name);
+
+            Boolean nullable = null;
+            if (rawType(propertyType).isPrimitive()) {
+                nullable = false;
+            } else {
+                nullable = annotatedNullability(member.getValue());
+                if (nullable == null) {
+                    if (kotlinNullable == null) {
+                        kotlinNullable = KotlinMetadata.propertyNullability(type);
+                    }
+                    nullable = kotlinNullable.get(name);
+                }
+            }
+            properties.add(new PropertyInfo(name, new JavaTypeRef(propertyType, nullable != null && nullable), descriptions.get(name)));
+        }
+        return properties;
+    }
+
+    @Override
+    public boolean isSealed(final Class<?> type) {
+        // Kotlin sealed classes are abstract with private constructors only
+        if (!Modifier.isAbstract(type.getModifiers()) || type.isInterface()) {
+            return false;
+        }
+        for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+            if (!constructor.isSynthetic() && !Modifier.isPrivate(constructor.getModifiers())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public List<Class<?>> sealedSubclasses(final Class<?> type) {
+        List<Class<?>> subclasses = new ArrayList<>();
+        for (Class<?> nested : type.getDeclaredClasses()) {
+            if (Modifier.isFinal(nested.getModifiers()) && !nested.isSynthetic()) {
+                subclasses.add(nested);
+            }
+        }
+        return subclasses;
+    }
+
+    private static String propertyName(final Method getter, final Set<String> fieldNames) {
+        String name = getter.getName();
+        if (name.startsWith("get") && name.length() > 3) {
+            String suffix = name.substring(3);
+            String decapitalized = decapitalize(suffix);
+            return !fieldNames.contains(decapitalized) && fieldNames.contains(suffix) ? suffix : decapitalized;
+        }
+        if (name.startsWith("is") && name.length() > 2
+                && (getter.getReturnType() == boolean.class || getter.getReturnType() == Boolean.class)) {
+            // Kotlin keeps the "is" prefix in the property name
+            return fieldNames.contains(name) ? name : decapitalize(name.substring(2));
+        }
+        return null;
+    }
+
+    private static String decapitalize(final String name) {
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * Descriptions declared on constructor parameters. Parameter names are not available without -parameters, so
+     * each parameter is matched with the next declared field of the same type.
+     */
+    private static Map<String, String> descriptions(final Class<?> type, final Field[] fields) {
+        Map<String, String> descriptions = new HashMap<>();
+        for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+            if (constructor.isSynthetic()) {
+                continue;
+            }
+            Annotation[][] annotations = constructor.getParameterAnnotations();
+            Type[] parameterTypes = constructor.getGenericParameterTypes();
+            int offset = parameterTypes.length - annotations.length;
+
+            int fieldIndex = 0;
+            for (int i = 0; i < annotations.length; i++) {
+                Description description = description(annotations[i]);
+                if (description == null) {
+                    continue;
+                }
+                for (int f = fieldIndex; f < fields.length; f++) {
+                    Field field = fields[f];
+                    if (!Modifier.isStatic(field.getModifiers()) && field.getGenericType().equals(parameterTypes[i + offset])) {
+                        descriptions.put(field.getName(), description.value());
+                        fieldIndex = f + 1;
+                        break;
+                    }
+                }
+            }
+        }
+        return descriptions;
+    }
+
+    private static Description description(final Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof Description) {
+                return (Description) annotation;
+            }
+        }
+        return null;
+    }
+
+    private static Boolean annotatedNullability(final AnnotatedElement member) {
+        for (Annotation annotation : member.getAnnotations()) {
+            String name = annotation.annotationType().getSimpleName();
+            if (name.equals("Nullable")) {
+                return true;
+            }
+            if (name.equals("NotNull") || name.equals("Nonnull") || name.equals("NonNull")) {
+                return false;
+            }
+        }
+        return null;
+    }
+
+    static Class<?> rawType(final Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        } else if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        } else if (type instanceof GenericArrayType) {
+            return Array.newInstance(rawType(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+        } else if (type instanceof WildcardType) {
+            return rawType(((WildcardType) type).getUpperBounds()[0]);
+        } else if (type instanceof TypeVariable) {
+            return rawType(((TypeVariable<?>) type).getBounds()[0]);
+        }
+        return Object.class;
+    }
+
+    /**
+     * Wraps a {@link Type}, element types are resolved once.
+     */
+    static class JavaTypeRef implements TypeRef {
+
+        private final Type type;
+        private final boolean nullable;
+        private final Class<?> rawType;
+        private volatile TypeRef elementType;
+
+        JavaTypeRef(final Type type, final boolean nullable) {
+            this.type = type;
+            this.nullable = nullable;
+            this.rawType = JavaTypeIntrospector.rawType(type);
+        }
+
+        @Override
+        public Class<?> getRawType() {
+            return rawType;
+        }
+
+        @Override
+        public boolean isNullable() {
+            return nullable;
+        }
+
+        @Override
+        public TypeRef getElementType() {
+            if (elementType == null) {
+                Type element = Object.class;
+                if (type instanceof GenericArrayType) {
+                    element = ((GenericArrayType) type).getGenericComponentType();
+                } else if (rawType.isArray()) {
+                    element = rawType.getComponentType();
+                } else if (type instanceof ParameterizedType) {
+                    element = ((ParameterizedType) type).getActualTypeArguments()[0];
+                } else if (type instanceof WildcardType || type instanceof TypeVariable) {
+                    return new JavaTypeRef(rawType, nullable).getElementType();
+                }
+                elementType = new JavaTypeRef(element, false);
+            }
+            return elementType;
+        }
+    }
+}
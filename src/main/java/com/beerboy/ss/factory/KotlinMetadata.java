@@ -0,0 +1,320 @@
+package com.beerboy.ss.factory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import kotlin.Metadata;
+
+/**
+ * Reads the nullability of the properties of a Kotlin class from its {@link Metadata} annotation, without
+ * kotlin-reflect.
+ * <p>
+ * The d1 strings of the annotation hold protobuf messages: the string table of the class, followed by the class
+ * itself. Only the fields leading to the name and return type nullability of properties are decoded, everything
+ * else is skipped. Names are resolved from the d2 strings through the records of the string table.
+ *
+ * @author manusant
+ */
+final class KotlinMetadata {
+
+    private static final int CLASS_KIND = 1;
+
+    // Field numbers of the metadata messages
+    private static final int TABLE_RECORD = 1;
+    private static final int RECORD_RANGE = 1;
+    private static final int RECORD_PREDEFINED_INDEX = 2;
+    private static final int RECORD_SUBSTRING_INDEX = 4;
+    private static final int RECORD_STRING = 6;
+    private static final int CLASS_PROPERTY = 10;
+    private static final int CLASS_TYPE_TABLE = 30;
+    private static final int PROPERTY_NAME = 2;
+    private static final int PROPERTY_RETURN_TYPE = 3;
+    private static final int PROPERTY_RETURN_TYPE_ID = 9;
+    private static final int TYPE_NULLABLE = 3;
+    private static final int TYPE_TABLE_TYPE = 1;
+    private static final int TYPE_TABLE_FIRST_NULLABLE = 2;
+
+    private KotlinMetadata() {
+    }
+
+    /**
+     * Nullability of the properties declared by a Kotlin class, by name. Empty for other types, or when the metadata
+     * can't be read.
+     */
+    static Map<String, Boolean> propertyNullability(final Class<?> type) {
+        Metadata metadata = type.getAnnotation(Metadata.class);
+        if (metadata == null || metadata.k() != CLASS_KIND || metadata.d1().length == 0) {
+            return Collections.emptyMap();
+        }
+        try {
+            Reader reader = new Reader(decode(metadata.d1()));
+            String[] names = names(reader.message(reader.varint()), metadata.d2());
+            return properties(reader, names);
+        } catch (RuntimeException e) {
+            return Collections.emptyMap();
+        }
+    }
+
+    private static Map<String, Boolean> properties(final Reader reader, final String[] names) {
+        List<int[]> properties = new ArrayList<>();
+        List<Boolean> typeTable = Collections.emptyList();
+        while (reader.hasNext()) {
+            int tag = reader.varint();
+            if (tag == (CLASS_PROPERTY << 3 | 2)) {
+                properties.add(property(reader.message(reader.varint())));
+            } else if (tag == (CLASS_TYPE_TABLE << 3 | 2)) {
+                typeTable = typeTable(reader.message(reader.varint()));
+            } else {
+                reader.skip(tag);
+            }
+        }
+        Map<String, Boolean> nullability = new HashMap<>();
+        for (int[] property : properties) {
+            int name = property[0];
+            if (name >= 0 && name < names.length && names[name] != null) {
+                boolean nullable = property[1] == 1 || property[2] >= 0 && property[2] < typeTable.size() && typeTable.get(property[2]);
+                nullability.put(names[name], nullable);
+            }
+        }
+        return nullability;
+    }
+
+    /**
+     * Name index, return type nullability and return type table index of a property.
+     */
+    private static int[] property(final Reader reader) {
+        int[] property = {-1, 0, -1};
+        while (reader.hasNext()) {
+            int tag = reader.varint();
+            if (tag == (PROPERTY_NAME << 3)) {
+                property[0] = reader.varint();
+            } else if (tag == (PROPERTY_RETURN_TYPE << 3 | 2)) {
+                property[1] = nullable(reader.message(reader.varint())) ? 1 : 0;
+            } else if (tag == (PROPERTY_RETURN_TYPE_ID << 3)) {
+                property[2] = reader.varint();
+            } else {
+                reader.skip(tag);
+            }
+        }
+        return property;
+    }
+
+    private static boolean nullable(final Reader reader) {
+        boolean nullable = false;
+        while (reader.hasNext()) {
+            int tag = reader.varint();
+            if (tag == (TYPE_NULLABLE << 3)) {
+                nullable = reader.varint() != 0;
+            } else {
+                reader.skip(tag);
+            }
+        }
+        return nullable;
+    }
+
+    /**
+     * Nullability of the types of a type table, types from the first nullable index on are all nullable.
+     */
+    private static List<Boolean> typeTable(final Reader reader) {
+        List<Boolean> types = new ArrayList<>();
+        int firstNullable = -1;
+        while (reader.hasNext()) {
+            int tag = reader.varint();
+            if (tag == (TYPE_TABLE_TYPE << 3 | 2)) {
+                types.add(nullable(reader.message(reader.varint())));
+            } else if (tag == (TYPE_TABLE_FIRST_NULLABLE << 3)) {
+                firstNullable = reader.varint();
+            } else {
+                reader.skip(tag);
+            }
+        }
+        if (firstNullable >= 0) {
+            for (int i = firstNullable; i < types.size(); i++) {
+                types.set(i, true);
+            }
+        }
+        return types;
+    }
+
+    /**
+     * Strings of the string table. Records cover consecutive indexes and either hold their string or point to the
+     * d2 string of the same index, indexes past the records are d2 strings as is. Predefined strings are class
+     * names, they are left unresolved.
+     */
+    private static String[] names(final Reader table, final String[] strings) {
+        String[] names = strings.clone();
+        int index = 0;
+        while (table.hasNext()) {
+            int tag = table.varint();
+            if (tag != (TABLE_RECORD << 3 | 2)) {
+                table.skip(tag);
+                continue;
+            }
+            Reader record = table.message(table.varint());
+            int range = 1;
+            String string = null;
+            boolean predefined = false;
+            List<Integer> substring = new ArrayList<>();
+            while (record.hasNext()) {
+                int field = record.varint();
+                if (field == (RECORD_RANGE << 3)) {
+                    range = record.varint();
+                } else if (field == (RECORD_PREDEFINED_INDEX << 3)) {
+                    record.varint();
+                    predefined = true;
+                } else if (field == (RECORD_STRING << 3 | 2)) {
+                    string = record.string(record.varint());
+                } else if (field == (RECORD_SUBSTRING_INDEX << 3 | 2)) {
+                    Reader packed = record.message(record.varint());
+                    while (packed.hasNext()) {
+                        substring.add(packed.varint());
+                    }
+                } else if (field == (RECORD_SUBSTRING_INDEX << 3)) {
+                    substring.add(record.varint());
+                } else {
+                    record.skip(field);
+                }
+            }
+            for (int i = index; i < index + range && i < names.length; i++) {
+                String name = string != null ? string : predefined ? null : names[i];
+                if (name != null && substring.size() == 2) {
+                    name = name.substring(substring.get(0), substring.get(1));
+                }
+                names[i] = name;
+            }
+            index += range;
+        }
+        return names;
+    }
+
+    /**
+     * Bytes of the d1 strings. Recent compilers store a byte per char after a zero marker, older ones pack 7 bits
+     * per char, each shifted by one so no char is zero.
+     */
+    private static byte[] decode(final String[] data) {
+        String[] strings = data;
+        if (!strings[0].isEmpty() && strings[0].charAt(0) == '\u0000') {
+            return bytes(strings, 1);
+        }
+        if (!strings[0].isEmpty() && strings[0].charAt(0) == '\uffff') {
+            strings = strings.clone();
+            strings[0] = strings[0].substring(1);
+        }
+        byte[] packed = bytes(strings, 0);
+        byte[] bytes = new byte[7 * packed.length / 8];
+        int index = 0;
+        int bit = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            int first = ((packed[index++] + 0x7f) & 0x7f) >>> bit;
+            int second = (((packed[index] + 0x7f) & 0x7f) & ((1 << (bit + 1)) - 1)) << (7 - bit);
+            bytes[i] = (byte) (first + second);
+            if (bit == 6) {
+                index++;
+                bit = 0;
+            } else {
+                bit++;
+            }
+        }
+        return bytes;
+    }
+
+    private static byte[] bytes(final String[] strings, final int skip) {
+        int length = -skip;
+        for (String string : strings) {
+            length += string.length();
+        }
+        byte[] bytes = new byte[length];
+        int b = 0;
+        for (int s = 0; s < strings.length; s++) {
+            for (int c = s == 0 ? skip : 0; c < strings[s].length(); c++) {
+                bytes[b++] = (byte) strings[s].charAt(c);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Protobuf wire format reader over a range of bytes.
+     */
+    private static final class Reader {
+
+        private final byte[] bytes;
+        private final int end;
+        private int position;
+
+        private Reader(final byte[] bytes) {
+            this(bytes, 0, bytes.length);
+        }
+
+        private Reader(final byte[] bytes, final int start, final int end) {
+            this.bytes = bytes;
+            this.position = start;
+            this.end = end;
+        }
+
+        boolean hasNext() {
+            return position < end;
+        }
+
+        int varint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = next();
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return (int) value;
+                }
+            }
+            throw new IllegalStateException("Malformed varint");
+        }
+
+        Reader message(final int length) {
+            Reader message = new Reader(bytes, position, advance(length));
+            position += length;
+            return message;
+        }
+
+        String string(final int length) {
+            String string = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position = advance(length);
+            return string;
+        }
+
+        void skip(final int tag) {
+            switch (tag & 7) {
+                case 0:
+                    varint();
+                    break;
+                case 1:
+                    position = advance(8);
+                    break;
+                case 2:
+                    position = advance(varint());
+                    break;
+                case 5:
+                    position = advance(4);
+                    break;
+                default:
+                    throw new IllegalStateException("Unsupported wire type " + (tag & 7));
+            }
+        }
+
+        private int advance(final int length) {
+            if (length < 0 || position + length > end) {
+                throw new IllegalStateException("Truncated message");
+            }
+            return position + length;
+        }
+
+        private byte next() {
+            if (position >= end) {
+                throw new IllegalStateException("Truncated message");
+            }
+            return bytes[position++];
+        }
+    }
+}
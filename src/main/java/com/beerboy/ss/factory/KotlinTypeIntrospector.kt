@@ -0,0 +1,54 @@
+package com.beerboy.ss.factory
+
+import kotlin.reflect.KType
+import kotlin.reflect.KVisibility
+import kotlin.reflect.full.declaredMemberProperties
+import kotlin.reflect.full.primaryConstructor
+import kotlin.reflect.full.starProjectedType
+import kotlin.reflect.jvm.jvmErasure
+
+/**
+ * Introspects types with kotlin-reflect. Nullability and descriptions are read from the Kotlin metadata of
+ * every type, including generic arguments.
+ *
+ * @author manusant
+ */
+class KotlinTypeIntrospector : TypeIntrospector {
+
+    override fun typeOf(type: Class<*>): TypeRef = KotlinTypeRef(type.kotlin.starProjectedType)
+
+    override fun properties(type: Class<*>): List<PropertyInfo> {
+        val klass = type.kotlin
+        val descriptions = HashMap<String, String>()
+        klass.primaryConstructor?.parameters?.forEach { parameter ->
+            parameter.annotations.forEach {
+                if (it is Description && parameter.name != null) {
+                    descriptions[parameter.name!!] = it.value
+                }
+            }
+        }
+
+        return klass.declaredMemberProperties
+                .filter { it.visibility == KVisibility.PUBLIC }
+                .map { PropertyInfo(it.name, KotlinTypeRef(it.returnType), descriptions[it.name]) }
+    }
+
+    override fun isSealed(type: Class<*>): Boolean = type.kotlin.isSealed
+
+    override fun sealedSubclasses(type: Class<*>): List<Class<*>> =
+            type.kotlin.nestedClasses.filter { it.isFinal }.map { it.java }
+
+    /**
+     * Wraps a [KType], element types are resolved once.
+     */
+    class KotlinTypeRef(val type: KType) : TypeRef {
+
+        private val elementType by lazy { KotlinTypeRef(type.arguments[0].type!!) }
+
+        override fun getRawType(): Class<*> = type.jvmErasure.java
+
+        override fun isNullable(): Boolean = type.isMarkedNullable
+
+        override fun getElementType(): TypeRef = elementType
+    }
+}
@@ -0,0 +1,31 @@
+package com.beerboy.ss.factory;
+
+/**
+ * Property of a class along with the description declared on its constructor parameter.
+ *
+ * @author manusant
+ */
+public class PropertyInfo {
+
+    private final String name;
+    private final TypeRef type;
+    private final String description;
+
+    public PropertyInfo(final String name, final TypeRef type, final String description) {
+        this.name = name;
+        this.type = type;
+        this.description = description;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public TypeRef getType() {
+        return type;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
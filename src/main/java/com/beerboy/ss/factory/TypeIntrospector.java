@@ -0,0 +1,29 @@
+package com.beerboy.ss.factory;
+
+import java.util.List;
+
+/**
+ * Reflection backend used by {@link DefinitionsFactory} to discover the properties of a type. Results are
+ * cached by the factory, so implementations are called at most once per class.
+ *
+ * @author manusant
+ */
+public interface TypeIntrospector {
+
+    /**
+     * Non nullable reference to the given class.
+     */
+    TypeRef typeOf(Class<?> type);
+
+    /**
+     * Public properties of the given class, sorted by name.
+     */
+    List<PropertyInfo> properties(Class<?> type);
+
+    boolean isSealed(Class<?> type);
+
+    /**
+     * Final classes nested in the given sealed class.
+     */
+    List<Class<?>> sealedSubclasses(Class<?> type);
+}
@@ -0,0 +1,21 @@
+package com.beerboy.ss.factory;
+
+/**
+ * Type of a property as seen by a {@link TypeIntrospector}.
+ *
+ * @author manusant
+ */
+public interface TypeRef {
+
+    /**
+     * Erased class of the type. Primitive classes are returned for Kotlin primitive types.
+     */
+    Class<?> getRawType();
+
+    boolean isNullable();
+
+    /**
+     * Element type of an array or collection type.
+     */
+    TypeRef getElementType();
+}
@@ -0,0 +1,142 @@
+package com.beerboy.ss.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.http.HttpServletResponse;
+
+import spark.HaltException;
+import spark.Route;
+
+/**
+ * Metrics of the operations of a service, keyed by HTTP method and path template.
+ *
+ * @author manusant
+ */
+public final class MetricsRegistry {
+
+    // Upper bounds of the Prometheus latency buckets, in seconds
+    private static final double[] BUCKETS = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    /**
+     * Metrics of an operation, created on first use.
+     */
+    public OperationMetrics operation(final String method, final String path) {
+        String upperMethod = method.toUpperCase(Locale.ROOT);
+        return operations.computeIfAbsent(upperMethod + " " + path, key -> new OperationMetrics(upperMethod, path));
+    }
+
+    /**
+     * Metrics of an operation, null if it was never bound.
+     */
+    public OperationMetrics get(final String method, final String path) {
+        return operations.get(method.toUpperCase(Locale.ROOT) + " " + path);
+    }
+
+    public Collection<OperationMetrics> getOperations() {
+        return Collections.unmodifiableCollection(new ArrayList<>(operations.values()));
+    }
+
+    /**
+     * Records the latency, status and sizes of every request handled by a route. Halted requests are recorded
+     * with the halt status, failures with 500 and unmatched requests with 404.
+     */
+    public Route wrap(final OperationMetrics metrics, final Route route) {
+        return (request, response) -> {
+            HttpServletResponse raw = response.raw();
+            long written = ResponseSize.written(raw);
+            long start = System.nanoTime();
+            int status = 500;
+            Object result = null;
+            try {
+                result = route.handle(request, response);
+                status = result == null ? 404 : raw.getStatus();
+                return result;
+            } catch (HaltException e) {
+                status = e.statusCode();
+                result = e.body();
+                throw e;
+            } finally {
+                long size = ResponseSize.written(raw) - written + ResponseSize.of(result);
+                metrics.record(System.nanoTime() - start, status, request.raw().getContentLengthLong(), size);
+            }
+        };
+    }
+
+    /**
+     * Metrics in the Prometheus text exposition format.
+     */
+    public String toPrometheus() {
+        Collection<OperationMetrics> snapshot = getOperations();
+        StringBuilder text = new StringBuilder(256 + snapshot.size() * 1024);
+
+        header(text, "spark_swagger_requests_total", "counter", "Requests handled by operation.");
+        for (OperationMetrics metrics : snapshot) {
+            sample(text, "spark_swagger_requests_total", metrics, null, metrics.getRequests());
+        }
+        header(text, "spark_swagger_responses_total", "counter", "Responses by operation and status code.");
+        for (OperationMetrics metrics : snapshot) {
+            for (Map.Entry<Integer, Long> status : metrics.getStatusCounts().entrySet()) {
+                sample(text, "spark_swagger_responses_total", metrics, "status=\"" + status.getKey() + "\"", status.getValue());
+            }
+        }
+        header(text, "spark_swagger_request_duration_seconds", "histogram", "Time spent handling requests by operation.");
+        for (OperationMetrics metrics : snapshot) {
+            LatencyHistogram latency = metrics.getLatency();
+            for (double bucket : BUCKETS) {
+                sample(text, "spark_swagger_request_duration_seconds_bucket", metrics, "le=\"" + bucket + "\"", latency.countAtMost((long) (bucket * 1e6)));
+            }
+            long count = latency.getCount();
+            sample(text, "spark_swagger_request_duration_seconds_bucket", metrics, "le=\"+Inf\"", count);
+            label(text.append("spark_swagger_request_duration_seconds_sum"), metrics, null).append(' ').append(latency.getSum() / 1e6).append('\n');
+            sample(text, "spark_swagger_request_duration_seconds_count", metrics, null, count);
+        }
+        header(text, "spark_swagger_request_bytes_total", "counter", "Declared length of request bodies by operation.");
+        for (OperationMetrics metrics : snapshot) {
+            sample(text, "spark_swagger_request_bytes_total", metrics, null, metrics.getRequestBytes());
+        }
+        header(text, "spark_swagger_response_bytes_total", "counter", "Size of response bodies by operation.");
+        for (OperationMetrics metrics : snapshot) {
+            sample(text, "spark_swagger_response_bytes_total", metrics, null, metrics.getResponseBytes());
+        }
+        return text.toString();
+    }
+
+    private static void header(final StringBuilder text, final String name, final String type, final String help) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(final StringBuilder text, final String name, final OperationMetrics metrics, final String extraLabel, final long value) {
+        label(text.append(name), metrics, extraLabel).append(' ').append(value).append('\n');
+    }
+
+    private static StringBuilder label(final StringBuilder text, final OperationMetrics metrics, final String extraLabel) {
+        text.append("{method=\"").append(metrics.getMethod()).append("\",path=\"");
+        escape(text, metrics.getPath()).append('"');
+        if (extraLabel != null) {
+            text.append(',').append(extraLabel);
+        }
+        return text.append('}');
+    }
+
+    private static StringBuilder escape(final StringBuilder text, final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                text.append('\\').append(c);
+            } else if (c == '\n') {
+                text.append("\\n");
+            } else {
+                text.append(c);
+            }
+        }
+        return text;
+    }
+}
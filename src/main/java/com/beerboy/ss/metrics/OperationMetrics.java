@@ -0,0 +1,113 @@
+package com.beerboy.ss.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a single operation, identified by its HTTP method and path template as found in the spec.
+ * Recording never blocks, values are read as they are when a getter is called.
+ *
+ * @author manusant
+ */
+public final class OperationMetrics {
+
+    private static final int STATUS_CODES = 600;
+
+    private final String method;
+    private final String path;
+    private final long createdAt = System.nanoTime();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    // Created on the first response with a status code
+    private final AtomicReferenceArray<LongAdder> statuses = new AtomicReferenceArray<>(STATUS_CODES);
+
+    OperationMetrics(final String method, final String path) {
+        this.method = method;
+        this.path = path;
+    }
+
+    void record(final long nanos, final int status, final long requestSize, final long responseSize) {
+        requests.increment();
+        latency.record(nanos / 1000);
+        status(status).increment();
+        if (requestSize > 0) {
+            requestBytes.add(requestSize);
+        }
+        if (responseSize > 0) {
+            responseBytes.add(responseSize);
+        }
+    }
+
+    private LongAdder status(final int status) {
+        int index = status > 0 && status < STATUS_CODES ? status : 0;
+        LongAdder counter = statuses.get(index);
+        if (counter == null) {
+            statuses.compareAndSet(index, null, new LongAdder());
+            counter = statuses.get(index);
+        }
+        return counter;
+    }
+
+    /**
+     * HTTP method of the operation, upper case.
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Path template of the operation, such as {@code /users/{id}}.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * Sum of the declared lengths of the request bodies.
+     */
+    public long getRequestBytes() {
+        return requestBytes.sum();
+    }
+
+    /**
+     * Sum of the sizes of the response bodies.
+     */
+    public long getResponseBytes() {
+        return responseBytes.sum();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Number of responses by status code, unknown status codes are counted as 0.
+     */
+    public Map<Integer, Long> getStatusCounts() {
+        Map<Integer, Long> counts = new TreeMap<>();
+        for (int status = 0; status < STATUS_CODES; status++) {
+            LongAdder counter = statuses.get(status);
+            if (counter != null) {
+                counts.put(status, counter.sum());
+            }
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * Requests per second since the operation was first bound.
+     */
+    public double getRequestRate() {
+        double seconds = (System.nanoTime() - createdAt) / 1e9;
+        return seconds > 0 ? getRequests() / seconds : 0;
+    }
+}
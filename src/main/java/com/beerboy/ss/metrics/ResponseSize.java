@@ -0,0 +1,67 @@
+package com.beerboy.ss.metrics;
+
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.ServletResponse;
+import javax.servlet.ServletResponseWrapper;
+
+/**
+ * Size of response bodies. Spark serializes the result of a route once every filter ran, so the size is taken
+ * from the result itself, plus whatever the route wrote straight to the Jetty output stream.
+ *
+ * @author manusant
+ */
+final class ResponseSize {
+
+    private static final boolean JETTY = isJetty();
+
+    private ResponseSize() {
+    }
+
+    /**
+     * Bytes written so far to the output stream of a response, 0 when not served by Jetty.
+     */
+    static long written(ServletResponse response) {
+        if (!JETTY) {
+            return 0;
+        }
+        while (response instanceof ServletResponseWrapper) {
+            response = ((ServletResponseWrapper) response).getResponse();
+        }
+        return response instanceof org.eclipse.jetty.server.Response ? ((org.eclipse.jetty.server.Response) response).getHttpOutput().getWritten() : 0;
+    }
+
+    /**
+     * Size of the body Spark writes for a route result, 0 when unknown.
+     */
+    static long of(final Object result) {
+        if (result instanceof String) {
+            return utf8Length((String) result);
+        }
+        if (result instanceof byte[]) {
+            return ((byte[]) result).length;
+        }
+        return 0;
+    }
+
+    private static long utf8Length(final String value) {
+        long length = value.length();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                // Non ASCII content is rare in API responses, encoding it beats counting surrogates by hand
+                return value.getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+        return length;
+    }
+
+    private static boolean isJetty() {
+        try {
+            Class.forName("org.eclipse.jetty.server.Response", false, ResponseSize.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
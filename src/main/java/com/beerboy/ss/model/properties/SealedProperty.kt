@@ -3,25 +3,18 @@ package com.beerboy.ss.model.properties
 import com.beerboy.ss.factory.DefinitionsFactory
 import com.beerboy.ss.model.ExternalDocs
 import com.beerboy.ss.model.Model
-import com.beerboy.ss.model.ModelImpl
 import kotlin.reflect.KClass
 
-class SealedProperty(name: String, private val clazz: KClass<*>) : AbstractProperty(name, "object") {
+class SealedProperty(name: String, val anyOf: List<Model>) : AbstractProperty(name, "object") {
     //    val anyOf = listOf<AnonType>(AnonType("object", clazz))
-    val anyOf = clazz.nestedClasses.filter { it.isFinal }.map {
-        val model = ModelImpl()
-        model.type = ModelImpl.OBJECT
-        DefinitionsFactory.parseProperties(model, it)
-        val stringProperty = StringProperty()
-        stringProperty.enum = listOf(it.simpleName)
-        model.addProperty("type", stringProperty)
-        model
-    }
+
+    constructor(name: String, clazz: KClass<*>) : this(name, DefinitionsFactory().sealedVariants(clazz))
 }
 
 class AnonType(val type: String, val properties: MutableMap<String, Property>?)
-class SealedModel(properties: MutableMap<String, Property>) : Model {
-    val anyOf = listOf<AnonType>(AnonType("object", properties))
+class SealedModel(val anyOf: List<Any>) : Model {
+
+    constructor(properties: MutableMap<String, Property>) : this(listOf<Any>(AnonType("object", properties)))
 
     override fun getTitle(): String? {
         return null
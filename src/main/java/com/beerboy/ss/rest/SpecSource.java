@@ -0,0 +1,21 @@
+package com.beerboy.ss.rest;
+
+import com.beerboy.spark.typify.spec.IgnoreSpec;
+import com.beerboy.ss.Config;
+
+/**
+ * Describes an application API for build time spec generation, see {@link com.beerboy.ss.SpecGenerator}.
+ * Implementations need a public no-argument constructor.
+ *
+ * @author manusant
+ */
+public interface SpecSource {
+
+    Config getConfig();
+
+    EndpointResolver getResolver();
+
+    default IgnoreSpec getIgnoreSpec() {
+        return null;
+    }
+}
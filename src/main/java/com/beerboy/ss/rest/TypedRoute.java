@@ -0,0 +1,15 @@
+package com.beerboy.ss.rest;
+
+import spark.Request;
+import spark.Response;
+
+/**
+ * Route receiving the request body decoded as the request type of its method descriptor.
+ *
+ * @author manusant
+ */
+@FunctionalInterface
+public interface TypedRoute<T> {
+
+    Object handle(T body, Request request, Response response) throws Exception;
+}
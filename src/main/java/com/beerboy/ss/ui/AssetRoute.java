@@ -0,0 +1,32 @@
+package com.beerboy.ss.ui;
+
+import java.util.function.Function;
+
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * Route writing a {@link StaticAsset} to the response. Responds 404 while the asset is not available.
+ *
+ * @author manusant
+ */
+public class AssetRoute implements Route {
+
+    private final Function<Request, StaticAsset> resolver;
+
+    public AssetRoute(final Function<Request, StaticAsset> resolver) {
+        this.resolver = resolver;
+    }
+
+    @Override
+    public Object handle(final Request request, final Response response) throws Exception {
+        StaticAsset asset = resolver.apply(request);
+        if (asset == null) {
+            // Body not set, Spark answers with its not found page
+            return null;
+        }
+        asset.writeTo(request, response);
+        return "";
+    }
+}
@@ -0,0 +1,246 @@
+package com.beerboy.ss.ui;
+
+import org.eclipse.jetty.server.HttpOutput;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+import spark.Request;
+import spark.Response;
+
+/**
+ * Immutable document served straight from memory. Content is kept in read-only direct buffers so requests
+ * only copy bytes to the connection, without touching the filesystem or serializing anything.
+ * <p>
+ * Gzip and deflate variants are compressed once when the asset is created and picked per request according
+ * to the Accept-Encoding header. A variant is only kept when it is smaller than the original content.
+ * <p>
+ * Each variant carries a strong ETag derived from the SHA-256 of the content, so the same content gets the same
+ * tag on every instance and across restarts. Requests whose If-None-Match lists the tag are answered with 304.
+ *
+ * @author manusant
+ */
+public class StaticAsset {
+
+    private static final String GZIP = "gzip";
+    private static final String DEFLATE = "deflate";
+    private static final String ETAG = "ETag";
+
+    private final String contentType;
+    private final ByteBuffer content;
+    private final ByteBuffer gzipContent;
+    private final ByteBuffer deflateContent;
+    // Encoded variants are distinct representations, each with its own tag
+    private final String etag;
+    private final String gzipEtag;
+    private final String deflateEtag;
+
+    private StaticAsset(final String contentType, final ByteBuffer content, final ByteBuffer gzipContent, final ByteBuffer deflateContent, final String hash) {
+        this.contentType = contentType;
+        this.content = content;
+        this.gzipContent = gzipContent;
+        this.deflateContent = deflateContent;
+        this.etag = '"' + hash + '"';
+        this.gzipEtag = '"' + hash + '-' + GZIP + '"';
+        this.deflateEtag = '"' + hash + '-' + DEFLATE + '"';
+    }
+
+    public static StaticAsset of(final String contentType, final byte[] bytes) {
+        byte[] gzip = compress(bytes, true);
+        byte[] deflate = compress(bytes, false);
+        return new StaticAsset(contentType,
+                toBuffer(bytes),
+                gzip.length < bytes.length ? toBuffer(gzip) : null,
+                deflate.length < bytes.length ? toBuffer(deflate) : null,
+                hash(bytes));
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public int getLength() {
+        return content.remaining();
+    }
+
+    /**
+     * Strong ETag of the unencoded content, quoted.
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    public void writeTo(final Request request, final Response response) throws IOException {
+        String acceptEncoding = request.headers("Accept-Encoding");
+        HttpServletResponse raw = response.raw();
+        raw.setContentType(contentType);
+
+        ByteBuffer selected = content;
+        String selectedEtag = etag;
+        String encoding = null;
+        if (gzipContent != null && accepts(acceptEncoding, GZIP)) {
+            selected = gzipContent;
+            selectedEtag = gzipEtag;
+            encoding = GZIP;
+        } else if (deflateContent != null && accepts(acceptEncoding, DEFLATE)) {
+            selected = deflateContent;
+            selectedEtag = deflateEtag;
+            encoding = DEFLATE;
+        }
+        if (gzipContent != null || deflateContent != null) {
+            raw.setHeader("Vary", "Accept-Encoding");
+        }
+        raw.setHeader(ETAG, selectedEtag);
+        if (matches(request.headers("If-None-Match"), selectedEtag)) {
+            raw.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        if (encoding != null) {
+            raw.setHeader("Content-Encoding", encoding);
+        }
+        write(raw, selected);
+    }
+
+    private static void write(final HttpServletResponse raw, final ByteBuffer buffer) throws IOException {
+        raw.setContentLength(buffer.remaining());
+
+        ServletOutputStream out = raw.getOutputStream();
+        ByteBuffer view = buffer.duplicate();
+        if (out instanceof HttpOutput) {
+            ((HttpOutput) out).write(view);
+        } else {
+            WritableByteChannel channel = Channels.newChannel(out);
+            while (view.hasRemaining()) {
+                channel.write(view);
+            }
+        }
+        raw.flushBuffer();
+    }
+
+    /**
+     * Checks whether the given coding is listed in an Accept-Encoding header and not refused with a zero quality.
+     * A wildcard only applies when the coding is not listed. The header is scanned in place, nothing is allocated.
+     */
+    static boolean accepts(final String acceptEncoding, final String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean wildcard = false;
+        int length = acceptEncoding.length();
+        int index = 0;
+        while (index < length) {
+            int end = acceptEncoding.indexOf(',', index);
+            if (end == -1) {
+                end = length;
+            }
+            int start = skipWhitespace(acceptEncoding, index, end);
+            int nameEnd = start;
+            while (nameEnd < end && acceptEncoding.charAt(nameEnd) != ';' && acceptEncoding.charAt(nameEnd) != ' ') {
+                nameEnd++;
+            }
+            if (nameEnd - start == coding.length() && acceptEncoding.regionMatches(true, start, coding, 0, coding.length())) {
+                return !isZeroQuality(acceptEncoding, nameEnd, end);
+            }
+            if (nameEnd - start == 1 && acceptEncoding.charAt(start) == '*') {
+                wildcard = !isZeroQuality(acceptEncoding, nameEnd, end);
+            }
+            index = end + 1;
+        }
+        return wildcard;
+    }
+
+    /**
+     * Checks whether an If-None-Match header lists the given tag, or is a wildcard. Tags are compared weakly as
+     * required for If-None-Match, ignoring a W/ prefix, and scanned in place.
+     */
+    static boolean matches(final String ifNoneMatch, final String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        int length = ifNoneMatch.length();
+        int index = 0;
+        while (index < length) {
+            int end = ifNoneMatch.indexOf(',', index);
+            if (end == -1) {
+                end = length;
+            }
+            int start = skipWhitespace(ifNoneMatch, index, end);
+            int tagEnd = end;
+            while (tagEnd > start && ifNoneMatch.charAt(tagEnd - 1) == ' ') {
+                tagEnd--;
+            }
+            if (tagEnd - start == 1 && ifNoneMatch.charAt(start) == '*') {
+                return true;
+            }
+            if (ifNoneMatch.startsWith("W/", start)) {
+                start += 2;
+            }
+            if (tagEnd - start == etag.length() && ifNoneMatch.regionMatches(start, etag, 0, etag.length())) {
+                return true;
+            }
+            index = end + 1;
+        }
+        return false;
+    }
+
+    private static boolean isZeroQuality(final String header, final int from, final int to) {
+        int q = header.indexOf("q=", from);
+        if (q == -1 || q >= to) {
+            return false;
+        }
+        for (int i = q + 2; i < to; i++) {
+            char c = header.charAt(i);
+            if (c != '0' && c != '.' && c != ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipWhitespace(final String value, int index, final int end) {
+        while (index < end && value.charAt(index) == ' ') {
+            index++;
+        }
+        return index;
+    }
+
+    private static ByteBuffer toBuffer(final byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    private static String hash(final byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] compress(final byte[] bytes, final boolean gzip) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, bytes.length / 4));
+        try (OutputStream out = gzip ? new GZIPOutputStream(compressed) : new DeflaterOutputStream(compressed)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+}
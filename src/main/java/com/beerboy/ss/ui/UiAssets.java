@@ -0,0 +1,83 @@
+package com.beerboy.ss.ui;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable set of Swagger UI files, loaded and compressed once.
+ *
+ * @author manusant
+ */
+public class UiAssets {
+
+    public static final String INDEX = "index.html";
+
+    private final Map<String, StaticAsset> assets;
+
+    private UiAssets(final Map<String, StaticAsset> assets) {
+        this.assets = Collections.unmodifiableMap(assets);
+    }
+
+    public static UiAssets empty() {
+        return new UiAssets(new HashMap<>());
+    }
+
+    public static UiAssets of(final Map<String, StaticAsset> assets) {
+        return new UiAssets(new HashMap<>(assets));
+    }
+
+    /**
+     * Loads the top level files recorded by the manifest of an extracted UI folder. Other files of the folder are
+     * ignored, so nothing is loaded from a folder without a manifest.
+     */
+    public static UiAssets fromFolder(final String folder) throws IOException {
+        Map<String, StaticAsset> assets = new HashMap<>();
+        for (String fileName : UiManifest.load(folder).getFiles()) {
+            Path file = Paths.get(folder, fileName);
+            if (!fileName.contains("/") && Files.isRegularFile(file)) {
+                assets.put(fileName, StaticAsset.of(contentType(fileName), Files.readAllBytes(file)));
+            }
+        }
+        return new UiAssets(assets);
+    }
+
+    /**
+     * Creates a new set with the given assets added or replaced. This set is left untouched, so it can be
+     * shared safely between several SparkSwagger instances.
+     */
+    public UiAssets with(final Map<String, StaticAsset> overrides) {
+        Map<String, StaticAsset> merged = new HashMap<>(assets);
+        merged.putAll(overrides);
+        return new UiAssets(merged);
+    }
+
+    public StaticAsset get(final String fileName) {
+        return assets.get(fileName == null || fileName.isEmpty() ? INDEX : fileName);
+    }
+
+    public int size() {
+        return assets.size();
+    }
+
+    public static String contentType(final String fileName) {
+        if (fileName.endsWith(".html")) {
+            return "text/html; charset=utf-8";
+        } else if (fileName.endsWith(".css")) {
+            return "text/css; charset=utf-8";
+        } else if (fileName.endsWith(".js")) {
+            return "application/javascript; charset=utf-8";
+        } else if (fileName.endsWith(".map") || fileName.endsWith(".json")) {
+            return "application/json; charset=utf-8";
+        } else if (fileName.endsWith(".yaml") || fileName.endsWith(".yml")) {
+            return "application/x-yaml; charset=utf-8";
+        } else if (fileName.endsWith(".png")) {
+            return "image/png";
+        }
+        return "application/octet-stream";
+    }
+}
@@ -0,0 +1,152 @@
+package com.beerboy.ss.ui;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Record of the files extracted to a UI folder, along with a fingerprint of everything they were produced from.
+ * When the fingerprint did not change and the files are still there, the extraction is skipped as a whole, so no
+ * resource is read again. Otherwise every file is written, and the files left in the folders written to by a
+ * previous extraction, or by anything else, are removed.
+ *
+ * @author manusant
+ */
+public class UiManifest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UiManifest.class);
+
+    public static final String FILE_NAME = ".spark-swagger.manifest";
+
+    private final Path folder;
+    private final String previousFingerprint;
+    private final Set<String> previous;
+    private final Set<String> current = new LinkedHashSet<>();
+
+    private UiManifest(final Path folder, final String previousFingerprint, final Set<String> previous) {
+        this.folder = folder;
+        this.previousFingerprint = previousFingerprint;
+        this.previous = previous;
+    }
+
+    /**
+     * Loads the manifest of a folder. A folder without one holds no trusted file.
+     */
+    public static UiManifest load(final String folder) throws IOException {
+        Path folderPath = Paths.get(folder);
+        Path manifest = folderPath.resolve(FILE_NAME);
+        if (!Files.isRegularFile(manifest)) {
+            return new UiManifest(folderPath, null, Collections.emptySet());
+        }
+        List<String> lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+        Set<String> files = new LinkedHashSet<>();
+        for (String line : lines.subList(Math.min(1, lines.size()), lines.size())) {
+            if (!line.isEmpty()) {
+                files.add(line);
+            }
+        }
+        return new UiManifest(folderPath, lines.isEmpty() ? null : lines.get(0), files);
+    }
+
+    /**
+     * Whether the folder holds the files of an extraction with the given fingerprint. Always false without a
+     * fingerprint.
+     */
+    public boolean isCurrent(final String fingerprint) {
+        if (fingerprint == null || !fingerprint.equals(previousFingerprint)) {
+            return false;
+        }
+        for (String fileName : previous) {
+            if (!Files.isRegularFile(folder.resolve(fileName))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void write(final String fileName, final byte[] content) throws IOException {
+        current.add(fileName);
+        Path file = folder.resolve(fileName);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content);
+        LOGGER.debug("Spark-Swagger: Swagger UI file " + fileName + " successfully saved");
+    }
+
+    /**
+     * Prunes the files not written by this extraction from the folders it or the previous one wrote to, and saves
+     * the manifest.
+     */
+    public void store(final String fingerprint) throws IOException {
+        Files.createDirectories(folder);
+        Set<Path> folders = new LinkedHashSet<>();
+        folders.add(folder);
+        for (String fileName : previous) {
+            folders.add(folder.resolve(fileName).getParent());
+        }
+        for (String fileName : current) {
+            folders.add(folder.resolve(fileName).getParent());
+        }
+        for (Path written : folders) {
+            if (Files.isDirectory(written)) {
+                prune(written);
+            }
+        }
+        List<String> lines = new ArrayList<>(current.size() + 1);
+        lines.add(fingerprint != null ? fingerprint : "");
+        lines.addAll(current);
+        Files.write(folder.resolve(FILE_NAME), lines, StandardCharsets.UTF_8);
+        LOGGER.debug("Spark-Swagger: UI extraction wrote " + current.size() + " files");
+    }
+
+    private void prune(final Path written) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(written, Files::isRegularFile)) {
+            for (Path file : files) {
+                String fileName = folder.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+                if (!fileName.equals(FILE_NAME) && !current.contains(fileName)) {
+                    Files.delete(file);
+                    LOGGER.debug("Spark-Swagger: Swagger UI file " + fileName + " pruned");
+                }
+            }
+        }
+    }
+
+    /**
+     * Files of the last extraction, relative to the folder.
+     */
+    public Set<String> getFiles() {
+        return Collections.unmodifiableSet(previous);
+    }
+
+    /**
+     * SHA-256 of the given parts, in hex.
+     */
+    public static String fingerprint(final byte[]... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (byte[] part : parts) {
+                digest.update(part);
+                digest.update((byte) 0);
+            }
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.beerboy.ss.validation;
+
+import com.beerboy.ss.descriptor.ParameterDescriptor;
+import com.beerboy.ss.descriptor.ParameterDescriptor.ParameterType;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import spark.Request;
+import spark.Route;
+import spark.Service;
+import spark.TemplateViewRoute;
+
+/**
+ * Validates the path, query and header parameters of a route against their {@link ParameterDescriptor}s before
+ * the handler runs, halting with 400 on the first invalid parameter.
+ * <p>
+ * Checks are compiled once when the route is bound: patterns are precompiled, enum names are kept in lookup
+ * sets and numbers are checked by scanning their digits, so valid requests are validated without allocating.
+ * Collection parameters are comma separated values, each value is checked in place.
+ *
+ * @author manusant
+ */
+public final class ParamsValidator {
+
+    private final Service spark;
+    private final ParamCheck[] checks;
+
+    private ParamsValidator(final Service spark, final ParamCheck[] checks) {
+        this.spark = spark;
+        this.checks = checks;
+    }
+
+    /**
+     * Compiles the validator of a route, or returns null when none of its parameters can be checked.
+     */
+    public static ParamsValidator of(final Service spark, final List<ParameterDescriptor> parameters) {
+        if (parameters == null || parameters.isEmpty()) {
+            return null;
+        }
+        List<ParamCheck> checks = new ArrayList<>();
+        for (ParameterDescriptor parameter : parameters) {
+            ParamCheck check = ParamCheck.of(parameter);
+            if (check != null) {
+                checks.add(check);
+            }
+        }
+        return checks.isEmpty() ? null : new ParamsValidator(spark, checks.toArray(new ParamCheck[0]));
+    }
+
+    public void validate(final Request request) {
+        for (ParamCheck check : checks) {
+            String message = check.validate(request);
+            if (message != null) {
+                throw spark.halt(400, message);
+            }
+        }
+    }
+
+    public Route wrap(final Route route) {
+        return (request, response) -> {
+            validate(request);
+            return route.handle(request, response);
+        };
+    }
+
+    public TemplateViewRoute wrapTemplate(final TemplateViewRoute route) {
+        return (request, response) -> {
+            validate(request);
+            return route.handle(request, response);
+        };
+    }
+
+    /**
+     * Check of a single value, or of a single item of a collection, between start and end.
+     */
+    private interface ValueCheck {
+        boolean test(String value, int start, int end);
+    }
+
+    private static final class ParamCheck {
+
+        private final ParameterType type;
+        // Name as looked up in the request, path parameter names are lowercased and prefixed
+        private final String name;
+        private final boolean required;
+        private final boolean allowEmpty;
+        private final boolean collection;
+        private final ValueCheck valueCheck;
+        private final String missingMessage;
+        private final String invalidMessage;
+
+        private ParamCheck(final ParameterDescriptor parameter, final ValueCheck valueCheck) {
+            this.type = parameter.getType();
+            this.name = type == ParameterType.PATH ? ":" + parameter.getName().toLowerCase() : parameter.getName();
+            // Defaults apply when a parameter is missing
+            this.required = (parameter.isRequired() || type == ParameterType.PATH) && parameter.getDefaultValue() == null;
+            this.allowEmpty = Boolean.TRUE.equals(parameter.getAllowEmptyValue());
+            this.collection = parameter.getCollectionOf() != null;
+            this.valueCheck = valueCheck;
+            String kind = type.name().toLowerCase();
+            this.missingMessage = "Missing " + kind + " parameter '" + parameter.getName() + "'";
+            this.invalidMessage = "Invalid " + kind + " parameter '" + parameter.getName() + "'";
+        }
+
+        static ParamCheck of(final ParameterDescriptor parameter) {
+            if (parameter.getType() == null || parameter.getName() == null) {
+                return null;
+            }
+            Class<?> valueType = parameter.getObject() != null ? parameter.getObject() : parameter.getCollectionOf();
+            ValueCheck typeCheck = valueType == null ? null : typeCheck(valueType);
+            ValueCheck patternCheck = parameter.getPattern() == null ? null : patternCheck(Pattern.compile(parameter.getPattern()));
+
+            ValueCheck valueCheck;
+            if (typeCheck != null && patternCheck != null) {
+                valueCheck = (value, start, end) -> typeCheck.test(value, start, end) && patternCheck.test(value, start, end);
+            } else {
+                valueCheck = typeCheck != null ? typeCheck : patternCheck;
+            }
+            ParamCheck check = new ParamCheck(parameter, valueCheck);
+            return check.valueCheck != null || check.required || !check.allowEmpty ? check : null;
+        }
+
+        String validate(final Request request) {
+            String value;
+            switch (type) {
+                case PATH:
+                    value = request.params(name);
+                    break;
+                case QUERY:
+                    value = request.queryParams(name);
+                    break;
+                default:
+                    value = request.headers(name);
+            }
+            if (value == null) {
+                return required ? missingMessage : null;
+            }
+            if (value.isEmpty()) {
+                return allowEmpty ? null : invalidMessage;
+            }
+            if (valueCheck == null) {
+                return null;
+            }
+            if (!collection) {
+                return valueCheck.test(value, 0, value.length()) ? null : invalidMessage;
+            }
+            int start = 0;
+            int length = value.length();
+            while (start <= length) {
+                int end = value.indexOf(',', start);
+                if (end < 0) {
+                    end = length;
+                }
+                if (!valueCheck.test(value, start, end)) {
+                    return invalidMessage;
+                }
+                start = end + 1;
+            }
+            return null;
+        }
+    }
+
+    private static ValueCheck typeCheck(final Class<?> type) {
+        if (type.isEnum()) {
+            return enumCheck(type);
+        } else if (type == boolean.class || type == Boolean.class) {
+            return (value, start, end) -> matchesIgnoreCase(value, start, end, "true") || matchesIgnoreCase(value, start, end, "false");
+        } else if (type == int.class || type == Integer.class) {
+            return (value, start, end) -> isInteger(value, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        } else if (type == long.class || type == Long.class) {
+            return (value, start, end) -> isInteger(value, start, end, Long.MIN_VALUE, Long.MAX_VALUE);
+        } else if (type == double.class || type == Double.class || type == float.class || type == Float.class
+                || type == Number.class) {
+            return ParamsValidator::isDecimal;
+        } else if (type == UUID.class) {
+            return ParamsValidator::isUuid;
+        }
+        return null;
+    }
+
+    private static ValueCheck enumCheck(final Class<?> type) {
+        Object[] constants = type.getEnumConstants();
+        String[] names = new String[constants.length];
+        Set<String> lookup = new HashSet<>();
+        for (int i = 0; i < constants.length; i++) {
+            names[i] = ((Enum<?>) constants[i]).name();
+            lookup.add(names[i]);
+        }
+        return (value, start, end) -> {
+            if (start == 0 && end == value.length()) {
+                return lookup.contains(value);
+            }
+            // Item of a collection, compared in place
+            for (String name : names) {
+                if (name.length() == end - start && value.regionMatches(start, name, 0, name.length())) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    private static ValueCheck patternCheck(final Pattern pattern) {
+        // Matchers are reset rather than created for every value
+        ThreadLocal<Matcher> matchers = ThreadLocal.withInitial(() -> pattern.matcher(""));
+        return (value, start, end) -> matchers.get().reset(value).region(start, end).matches();
+    }
+
+    private static boolean matchesIgnoreCase(final String value, final int start, final int end, final String expected) {
+        return end - start == expected.length() && value.regionMatches(true, start, expected, 0, expected.length());
+    }
+
+    /**
+     * Same bounds as {@link Long#parseLong(String)}, accumulated negatively so the minimum value fits.
+     */
+    static boolean isInteger(final String value, final int start, final int end, final long min, final long max) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            negative = value.charAt(i) == '-';
+            i++;
+        }
+        if (i >= end) {
+            return false;
+        }
+        long limit = negative ? min : -max;
+        long multiplyMin = limit / 10;
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || result < multiplyMin) {
+                return false;
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                return false;
+            }
+            result -= digit;
+        }
+        return true;
+    }
+
+    /**
+     * Decimal notation with an optional exponent, such as {@code -1.5} or {@code 2e10}.
+     */
+    static boolean isDecimal(final String value, final int start, final int end) {
+        int i = start;
+        if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            i++;
+        }
+        int digits = 0;
+        while (i < end && isDigit(value.charAt(i))) {
+            i++;
+            digits++;
+        }
+        if (i < end && value.charAt(i) == '.') {
+            i++;
+            while (i < end && isDigit(value.charAt(i))) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        if (i < end && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            i++;
+            if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+                i++;
+            }
+            int exponentDigits = 0;
+            while (i < end && isDigit(value.charAt(i))) {
+                i++;
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                return false;
+            }
+        }
+        return i == end;
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    static boolean isUuid(final String value, final int start, final int end) {
+        if (end - start != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = value.charAt(start + i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (Character.digit(c, 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
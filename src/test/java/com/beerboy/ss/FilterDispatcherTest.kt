@@ -0,0 +1,40 @@
+package com.beerboy.ss
+
+import org.junit.Assert
+import org.junit.Test
+import spark.Filter
+import spark.Request
+
+class FilterDispatcherTest {
+
+    private class StubRequest(private val uri: String) : Request() {
+        override fun uri(): String = uri
+    }
+
+    private val calls = mutableListOf<String>()
+    private val dispatcher = FilterDispatcher()
+
+    private fun record(name: String) = Filter { request, _ -> calls.add(name + " " + request.params() + " " + request.splat().toList()) }
+
+    private fun dispatch(uri: String): List<String> {
+        calls.clear()
+        dispatcher.handle(StubRequest(uri), null)
+        return calls.toList()
+    }
+
+    @Test
+    fun `runs the filters of the paths under each endpoint in order`() {
+        dispatcher.add("/thor/shields/:owner", record("owned"), "owned")
+        dispatcher.add("/thor/shields", record("shields"), "shields")
+        dispatcher.add("/thor/hammers", record("hammers"), "hammers")
+
+        Assert.assertEquals(listOf("owned {:owner=odin} [42]", "shields {} [odin/42]"), dispatch("/thor/shields/odin/42"))
+        Assert.assertEquals(listOf("shields {} [odin]"), dispatch("/thor/shields/odin"))
+        Assert.assertEquals(listOf("shields {} []"), dispatch("/thor/shields/"))
+        Assert.assertEquals(emptyList<String>(), dispatch("/thor/shields"))
+        Assert.assertEquals(emptyList<String>(), dispatch("/thor/swords/1"))
+
+        dispatcher.remove("/thor/shields", "shields")
+        Assert.assertEquals(listOf("owned {:owner=odin} [42]"), dispatch("/thor/shields/odin/42"))
+    }
+}
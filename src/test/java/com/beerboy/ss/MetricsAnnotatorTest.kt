@@ -0,0 +1,61 @@
+package com.beerboy.ss
+
+import com.beerboy.ss.metrics.MetricsRegistry
+import com.beerboy.ss.metrics.recordRequests
+import com.fasterxml.jackson.databind.JsonNode
+import org.junit.Assert
+import org.junit.Test
+import java.util.concurrent.TimeUnit
+
+class MetricsAnnotatorTest {
+
+    private val metrics = MetricsRegistry()
+    private var now = 0L
+    private val annotator = MetricsAnnotator(metrics) { now }
+
+    private fun snapshot(base: SpecSnapshot, json: String): SpecSnapshot {
+        val bytes = json.toByteArray()
+        return base.next(RenderedSpec(bytes, bytes, bytes))
+    }
+
+    private fun operation(snapshot: SpecSnapshot, path: String): JsonNode {
+        return SpecFormat.JSON.mapper.readTree(snapshot.spec.json).path("paths").path(path).path("get")
+    }
+
+    @Test
+    fun `annotations are refreshed at most every five seconds`() {
+        val base = snapshot(SpecSnapshot.EMPTY, """{"paths":{"/shields":{"get":{}}}}""")
+        val shields = metrics.operation("GET", "/shields")
+        shields.recordRequests(10, 3)
+
+        val first = annotator.annotate(base)
+        Assert.assertEquals(base.version, first.version)
+        Assert.assertEquals(3.0, operation(first, "/shields").path("x-latency-p50").asDouble(), 0.5)
+        Assert.assertTrue(operation(first, "/shields").has("x-rps"))
+        // The base spec is never annotated itself
+        Assert.assertFalse(operation(base, "/shields").has("x-rps"))
+
+        shields.recordRequests(20, 3)
+        now += TimeUnit.SECONDS.toNanos(4)
+        Assert.assertSame(first, annotator.annotate(base))
+
+        now += TimeUnit.SECONDS.toNanos(1)
+        val second = annotator.annotate(base)
+        Assert.assertNotSame(first, second)
+        // 20 requests over the 5 seconds since the previous refresh
+        Assert.assertEquals(4.0, operation(second, "/shields").path("x-rps").asDouble(), 0.001)
+    }
+
+    @Test
+    fun `new spec versions are annotated right away`() {
+        val base = snapshot(SpecSnapshot.EMPTY, """{"paths":{"/shields":{"get":{}}}}""")
+        metrics.operation("GET", "/shields").recordRequests(1, 1)
+        metrics.operation("GET", "/hammers").recordRequests(1, 1)
+        Assert.assertTrue(operation(annotator.annotate(base), "/shields").has("x-rps"))
+
+        val next = snapshot(base, """{"paths":{"/shields":{"get":{}},"/hammers":{"get":{}}}}""")
+        val annotated = annotator.annotate(next)
+        Assert.assertEquals(next.version, annotated.version)
+        Assert.assertTrue(operation(annotated, "/hammers").has("x-rps"))
+    }
+}
@@ -0,0 +1,26 @@
+package com.beerboy.ss
+
+import com.beerboy.ss.factory.Description
+import java.math.BigDecimal
+import java.util.*
+
+/*
+ * Order and invoice types shared by the spec tests and benchmarks: nested types, collections, enums, nullable
+ * properties and descriptions.
+ */
+
+enum class Currency { EUR, USD, GBP }
+
+data class Money(@Description("Amount in cents") val amount: Long, val currency: Currency)
+
+data class Address(val street: String, val city: String, val zip: String?, val country: String)
+
+data class Customer(val id: UUID, val name: String, val billing: Address, val shipping: Address?, val tags: List<String>)
+
+data class Line(val sku: String, val quantity: Int, val price: Money, val discount: Money?)
+
+data class Order(val id: UUID, val customer: Customer, val lines: List<Line>, val total: Money, val placed: Date, val weight: BigDecimal?)
+
+data class Refund(val order: Order, val amount: Money, val reason: String?)
+
+data class Invoice(val order: Order, val refunds: List<Refund>, val address: Address, val paid: Boolean)
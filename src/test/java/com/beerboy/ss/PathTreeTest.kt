@@ -0,0 +1,60 @@
+package com.beerboy.ss
+
+import org.junit.Assert
+import org.junit.Test
+import java.util.function.BiPredicate
+
+class PathTreeTest {
+
+    private val any = BiPredicate<String, String?> { _, _ -> true }
+    private val tree = PathTree<String>().apply {
+        update("thor/shields/:id") { "shield" }
+        update("thor/shields/latest") { "latest" }
+        update("thor/shields/:id/owner") { "owner" }
+        update("thor/files/*") { "files" }
+    }
+
+    private fun find(path: String): Pair<String?, String?> {
+        val bounds = IntArray(PathTree.maxCaptures(path) * 2)
+        val value = tree.find(path, bounds, any, null)
+        return value to if (value == null || value == "latest") null else path.substring(bounds[0], bounds[1])
+    }
+
+    @Test
+    fun `prefers static segments and captures parameters`() {
+        Assert.assertEquals("latest" to null, find("/thor/shields/latest"))
+        Assert.assertEquals("shield" to "42", find("/thor/shields/42"))
+        Assert.assertEquals("owner" to "42", find("/thor/shields/42/owner"))
+        Assert.assertEquals("files" to "a/b/c.txt", find("/thor/files/a/b/c.txt"))
+        Assert.assertEquals(null to null, find("/thor/shields"))
+        Assert.assertEquals(null to null, find("/thor/hammers/1"))
+    }
+
+    @Test
+    fun `backtracks when a static branch does not accept the request`() {
+        val bounds = IntArray(8)
+        val notLatest = BiPredicate<String, String?> { value, _ -> value != "latest" }
+        Assert.assertEquals("shield", tree.find("/thor/shields/latest", bounds, notLatest, null))
+        Assert.assertEquals("latest", "/thor/shields/latest".substring(bounds[0], bounds[1]))
+    }
+
+    @Test
+    fun `trailing slashes are significant as in spark`() {
+        tree.update("thor/hammers/") { "hammers" }
+        Assert.assertEquals("hammers", find("/thor/hammers/").first)
+        Assert.assertEquals("hammers", find("//thor//hammers/").first)
+        Assert.assertEquals(null, find("/thor/hammers").first)
+        Assert.assertEquals("shield" to "42", find("/thor//shields/42"))
+        Assert.assertEquals(null to null, find("/thor/shields/42/"))
+        Assert.assertEquals(null to null, find("/thor/shields/latest/"))
+        Assert.assertEquals("files" to "a", find("/thor/files/a/"))
+        Assert.assertEquals("files" to "a/b/", find("/thor/files/a/b/"))
+    }
+
+    @Test
+    fun `trailing slashes can be ignored`() {
+        val lenient = PathTree<String>(false).apply { update("thor/hammers/") { "hammers" } }
+        Assert.assertEquals("hammers", lenient.find("/thor/hammers", IntArray(6), any, null))
+        Assert.assertEquals("hammers", lenient.find("/thor/hammers/", IntArray(6), any, null))
+    }
+}
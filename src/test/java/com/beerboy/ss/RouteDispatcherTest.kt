@@ -0,0 +1,50 @@
+package com.beerboy.ss
+
+import org.junit.Assert
+import org.junit.Test
+import spark.RouteImpl
+
+class RouteDispatcherTest {
+
+    private val dispatcher = RouteDispatcher().apply {
+        add("get", RouteImpl.create("thor/shields/:id") { request, _ -> "shield " + request.params(":id") })
+        add("delete", RouteImpl.create("thor/shields/:id") { _, _ -> "deleted" })
+        add("get", RouteImpl.create("thor/hammers", "application/json") { _, _ -> "{}" })
+        add("get", RouteImpl.create("thor/hammers", "text/plain") { _, _ -> "hammers" })
+    }
+
+    private fun handle(method: String, uri: String, accept: String? = null, response: TestResponse = TestResponse()): Any? {
+        val headers = if (accept != null) mapOf("Accept" to accept) else emptyMap()
+        return dispatcher.handle(TestRequest(method, uri, headers = headers), response)
+    }
+
+    @Test
+    fun `routes by method and path`() {
+        Assert.assertEquals("shield 42", handle("GET", "/thor/shields/42"))
+        Assert.assertEquals("deleted", handle("DELETE", "/thor/shields/42"))
+        // Unmatched paths are left to Spark's not found page
+        Assert.assertNull(handle("GET", "/thor/shields"))
+        Assert.assertNull(handle("GET", "/thor/shields/42/owner"))
+    }
+
+    @Test
+    fun `answers unmatched methods with 405 and the allowed methods`() {
+        val response = TestResponse()
+        Assert.assertNotNull(handle("PUT", "/thor/shields/42", response = response))
+        Assert.assertEquals(405, response.statusCode)
+        Assert.assertEquals("GET, DELETE, HEAD", response.headers["Allow"])
+    }
+
+    @Test
+    fun `falls back to get routes for head requests`() {
+        Assert.assertEquals("shield 7", handle("HEAD", "/thor/shields/7"))
+    }
+
+    @Test
+    fun `selects routes by accept type`() {
+        Assert.assertEquals("{}", handle("GET", "/thor/hammers", "application/json"))
+        Assert.assertEquals("hammers", handle("GET", "/thor/hammers", "text/plain;q=0.9, image/png"))
+        Assert.assertEquals("{}", handle("GET", "/thor/hammers"))
+        Assert.assertNull(handle("GET", "/thor/hammers", "image/png"))
+    }
+}
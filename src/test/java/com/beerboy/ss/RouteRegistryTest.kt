@@ -0,0 +1,47 @@
+package com.beerboy.ss
+
+import ch.qos.logback.classic.Level
+import com.beerboy.ss.descriptor.EndpointDescriptor
+import com.beerboy.ss.descriptor.MethodDescriptor
+import com.beerboy.ss.rest.Endpoint
+import org.junit.Assert
+import org.junit.Test
+import spark.HaltException
+import spark.ResponseTransformer
+import spark.Route
+import spark.Service
+import spark.globalstate.ServletFlag
+
+class RouteRegistryTest {
+
+    private var rendered = 0
+
+    private val transformer = ResponseTransformer { rendered++; "rendered $it" }
+
+    private val endpoint = Endpoint { swagger ->
+        swagger.endpoint(EndpointDescriptor.endpointPath("/items")) { _, _ -> }
+                .get(MethodDescriptor.path("/all"), "application/json", Route { _, _ -> "items" }, transformer)
+    }
+
+    @Test
+    fun `unregistered transformer routes answer 404 without rendering`() {
+        // Routes are registered but no server is started
+        ServletFlag.runFromServlet()
+        val sparkSwagger = SparkSwagger.of(Service.ignite(), Config(description = "Registry", title = "Registry",
+                host = "example.org:80", basePath = "", serviceName = "registry", logLevel = Level.INFO,
+                docPath = "/doc", extractUi = false, dispatchRoutes = true))
+        sparkSwagger.register(endpoint)
+        val dispatcher = sparkSwagger.dispatcher
+
+        Assert.assertEquals("rendered items", dispatcher.handle(TestRequest("GET", "/registry/items/all"), TestResponse()))
+
+        sparkSwagger.unregister(endpoint)
+        try {
+            dispatcher.handle(TestRequest("GET", "/registry/items/all"), TestResponse())
+            Assert.fail("Unregistered route answered")
+        } catch (e: HaltException) {
+            Assert.assertEquals(404, e.statusCode())
+        }
+        Assert.assertEquals(1, rendered)
+    }
+}
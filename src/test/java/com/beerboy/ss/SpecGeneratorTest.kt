@@ -0,0 +1,41 @@
+package com.beerboy.ss
+
+import ch.qos.logback.classic.Level
+import com.beerboy.ss.descriptor.EndpointDescriptor
+import com.beerboy.ss.descriptor.MethodDescriptor
+import com.beerboy.ss.rest.Endpoint
+import com.beerboy.ss.rest.EndpointResolver
+import com.beerboy.ss.rest.SpecSource
+import org.junit.Assert
+import org.junit.Test
+import java.io.File
+
+class SpecGeneratorTest {
+
+    class LocalSpec : SpecSource {
+
+        override fun getConfig() = Config(description = "Generated", title = "Generated", host = "localhost:4567",
+                basePath = "", serviceName = "spec-generator-test", logLevel = Level.INFO, docPath = "/doc")
+
+        override fun getResolver() = EndpointResolver {
+            listOf(Endpoint { swagger ->
+                swagger.endpoint(EndpointDescriptor.endpointPath("/items")) { _, _ -> }
+                        .get(MethodDescriptor.path("/:id")) { _, _ -> "" }
+            })
+        }
+    }
+
+    @Test
+    fun `binding neither resolves the host nor sets up the ui`() {
+        val uiFolder = File(SwaggerHammer.getUiFolder("spec-generator-test/doc"))
+        uiFolder.deleteRecursively()
+
+        val swagger = SpecGenerator.bind(LocalSpec())
+
+        // Replaced by the runtime host when the prebuilt spec is loaded
+        Assert.assertEquals("localhost:4567", swagger.host)
+        Assert.assertFalse(uiFolder.exists())
+        swagger.parse()
+        Assert.assertNotNull(swagger.getPath("/items/{id}"))
+    }
+}
@@ -0,0 +1,77 @@
+package com.beerboy.ss
+
+import ch.qos.logback.classic.Level
+import com.beerboy.ss.descriptor.EndpointDescriptor
+import com.beerboy.ss.descriptor.MethodDescriptor
+import com.beerboy.ss.rest.Endpoint
+import com.beerboy.ss.rest.EndpointResolver
+import com.beerboy.ss.rest.SpecSource
+import com.fasterxml.jackson.annotation.JsonInclude
+import com.fasterxml.jackson.core.JsonFactory
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory
+
+/**
+ * Compares the cost of rendering a spec with a new ObjectMapper per render, as SwaggerParser used to, against
+ * the shared writers of [SpecFormat].
+ */
+object SpecRenderBenchmark {
+
+    class BenchmarkSpec(private val endpoints: Int) : SpecSource {
+
+        override fun getConfig() = Config(description = "Benchmark", title = "Benchmark", host = "example.org:3000",
+                basePath = "", serviceName = "benchmark", logLevel = Level.INFO, docPath = "/doc")
+
+        override fun getResolver() = EndpointResolver {
+            (0 until endpoints).map { index ->
+                Endpoint { swagger ->
+                    swagger.endpoint(EndpointDescriptor.endpointPath("/resource$index")) { _, _ -> }
+                            .post(MethodDescriptor.path("/orders")
+                                    .withRequestType(Order::class)
+                                    .withResponseType(Invoice::class)) { _, _ -> "" }
+                            .get(MethodDescriptor.path("/orders/:id")
+                                    .withResponseType(Order::class)) { _, _ -> "" }
+                }
+            }
+        }
+    }
+
+    @JvmStatic
+    fun main(args: Array<String>) {
+        val endpoints = if (args.isNotEmpty()) args[0].toInt() else 50
+        val iterations = if (args.size > 1) args[1].toInt() else 200
+
+        val swagger = SpecGenerator.bind(BenchmarkSpec(endpoints))
+        swagger.parse()
+
+        val perRenderMapper = measure(iterations) {
+            newMapper(JsonFactory()).writeValueAsBytes(swagger).size + newMapper(YAMLFactory()).writeValueAsBytes(swagger).size
+        }
+        val sharedWriter = measure(iterations) {
+            SpecFormat.JSON.writer.writeValueAsBytes(swagger).size + SpecFormat.YAML.writer.writeValueAsBytes(swagger).size
+        }
+        println("Render JSON + YAML of $endpoints endpoints: new mapper ${perRenderMapper / 1000} us, shared writer ${sharedWriter / 1000} us")
+    }
+
+    private fun newMapper(factory: JsonFactory): ObjectMapper {
+        val mapper = ObjectMapper(factory)
+        mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL)
+        return mapper
+    }
+
+    private fun measure(iterations: Int, render: () -> Int): Long {
+        var size = 0
+        for (i in 0 until iterations / 10) {
+            size += render()
+        }
+        val start = System.nanoTime()
+        for (i in 0 until iterations) {
+            size += render()
+        }
+        val elapsed = (System.nanoTime() - start) / iterations
+        if (size == 0) {
+            throw IllegalStateException("Nothing rendered")
+        }
+        return elapsed
+    }
+}
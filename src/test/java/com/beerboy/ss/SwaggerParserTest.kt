@@ -0,0 +1,92 @@
+package com.beerboy.ss
+
+import ch.qos.logback.classic.Level
+import com.beerboy.ss.descriptor.EndpointDescriptor
+import com.beerboy.ss.descriptor.MethodDescriptor
+import org.junit.Assert
+import org.junit.Test
+import spark.Service
+import spark.globalstate.ServletFlag
+import java.io.OutputStream
+
+class SwaggerParserTest {
+
+    private val config = Config(description = "Test", title = "Test", host = "example.org:3000", basePath = "",
+            serviceName = "test", logLevel = Level.INFO, docPath = "/doc")
+
+    private fun sparkSwagger(): SparkSwagger {
+        ServletFlag.runFromServlet()
+        val sparkSwagger = SparkSwagger.of(Service.ignite(), config)
+        sparkSwagger.endpoint(EndpointDescriptor.endpointPath("/orders")) { _, _ -> }
+                .post(MethodDescriptor.path("")
+                        .withRequestType(Order::class)
+                        .withResponseType(Order::class)) { _, _ -> "" }
+        return sparkSwagger
+    }
+
+    private fun bindLate(sparkSwagger: SparkSwagger) {
+        sparkSwagger.endpoint(EndpointDescriptor.endpointPath("/invoices")) { _, _ -> }
+                .get(MethodDescriptor.path("/:id")
+                        .withResponseType(Invoice::class)) { _, _ -> "" }
+        bindLateMethod(sparkSwagger)
+    }
+
+    private fun bindLateMethod(sparkSwagger: SparkSwagger) {
+        sparkSwagger.getSwagger().getApiEndpoints()!![0]
+                .get(MethodDescriptor.path("/:id")
+                        .withResponseType(Order::class)) { _, _ -> "" }
+    }
+
+    @Test
+    fun `patches a rendered spec with late bound endpoints`() {
+        val late = sparkSwagger()
+        val rendered = SwaggerParser.render(late.getSwagger())
+        bindLate(late)
+        val patched = SwaggerParser.patch(rendered, late.getSwagger())
+
+        val full = sparkSwagger()
+        bindLate(full)
+        val expected = SwaggerParser.render(full.getSwagger())
+
+        val json = SpecFormat.JSON.mapper
+        val yaml = SpecFormat.YAML.mapper
+        Assert.assertEquals(json.readTree(expected.json), json.readTree(patched.json))
+        Assert.assertEquals(yaml.readTree(expected.yaml), yaml.readTree(patched.yaml))
+        Assert.assertSame(patched, SwaggerParser.patch(patched, late.getSwagger()))
+    }
+
+    @Test
+    fun `rebuilds the spec without removed endpoints`() {
+        val removed = sparkSwagger()
+        bindLate(removed)
+        SwaggerParser.render(removed.getSwagger())
+        removed.getSwagger().removeApiEndpoint(removed.getSwagger().getApiEndpoints()!![1])
+        val rebuilt = SwaggerParser.render(removed.getSwagger())
+
+        val remaining = sparkSwagger()
+        bindLateMethod(remaining)
+        val expected = SwaggerParser.render(remaining.getSwagger())
+
+        val json = SpecFormat.JSON.mapper
+        Assert.assertEquals(json.readTree(expected.json), json.readTree(rebuilt.json))
+    }
+
+    @Test
+    fun `streams the spec while holding the model`() {
+        val swagger = sparkSwagger().getSwagger()
+        val writers = listOf<(OutputStream) -> Unit>(
+                { SwaggerParser.writeJson(swagger, it) },
+                { SwaggerParser.writeYaml(swagger, it) },
+                { SwaggerParser.writeJs(swagger, it) })
+        for (write in writers) {
+            var written = 0
+            write(object : OutputStream() {
+                override fun write(b: Int) {
+                    Assert.assertTrue("Streamed without holding the model", Thread.holdsLock(swagger))
+                    written++
+                }
+            })
+            Assert.assertTrue(written > 0)
+        }
+    }
+}
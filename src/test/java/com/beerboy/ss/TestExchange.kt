@@ -0,0 +1,104 @@
+package com.beerboy.ss
+
+import spark.Request
+import spark.Response
+import java.lang.reflect.Proxy
+import java.io.ByteArrayInputStream
+import java.net.URLDecoder
+import javax.servlet.ReadListener
+import javax.servlet.ServletInputStream
+import javax.servlet.http.HttpServletRequest
+import javax.servlet.http.HttpServletResponse
+
+/**
+ * Spark request of the given method and URI, with a query string, headers and a body in the given charset, backed
+ * by a minimal servlet request.
+ */
+class TestRequest(
+        private val method: String,
+        private val uri: String,
+        private val query: String? = null,
+        private val headers: Map<String, String> = emptyMap(),
+        private val params: Map<String, String> = emptyMap(),
+        private val body: ByteArray = ByteArray(0),
+        private val charset: String? = null) : Request() {
+
+    private val raw = Proxy.newProxyInstance(javaClass.classLoader, arrayOf(HttpServletRequest::class.java)) { _, m, args ->
+        when (m.name) {
+            "getMethod" -> method
+            "getRequestURI" -> uri
+            "getQueryString" -> query
+            "getHeader" -> header(args[0] as String)
+            "getContentLengthLong" -> -1L
+            "getCharacterEncoding" -> charset
+            "getInputStream" -> BodyStream(body)
+            else -> null
+        }
+    } as HttpServletRequest
+
+    private fun header(name: String) = headers.entries.firstOrNull { it.key.equals(name, true) }?.value
+
+    override fun requestMethod() = method
+
+    override fun uri() = uri
+
+    override fun raw() = raw
+
+    override fun headers(header: String) = header(header)
+
+    override fun params(param: String) = params[if (param.startsWith(":")) param else ":$param"]
+
+    override fun queryParams(queryParam: String): String? = query?.split("&")
+            ?.map { it.split("=", limit = 2) }
+            ?.firstOrNull { it[0] == queryParam }
+            ?.let { URLDecoder.decode(it.getOrElse(1) { "" }, "UTF-8") }
+}
+
+/**
+ * Spark response recording its status, content type and headers.
+ */
+class TestResponse : Response() {
+
+    var statusCode = 200
+    var contentType: String? = null
+    val headers = HashMap<String, String>()
+
+    private val raw = Proxy.newProxyInstance(javaClass.classLoader, arrayOf(HttpServletResponse::class.java)) { _, m, args ->
+        when (m.name) {
+            "setStatus" -> { statusCode = args[0] as Int; null }
+            "getStatus" -> statusCode
+            "setContentType" -> { contentType = args[0] as String?; null }
+            "getContentType" -> contentType
+            "setHeader", "addHeader" -> { headers[args[0] as String] = args[1] as String; null }
+            "getHeader" -> headers[args[0] as String]
+            "containsHeader" -> headers.containsKey(args[0] as String)
+            "isCommitted" -> false
+            else -> null
+        }
+    } as HttpServletResponse
+
+    override fun raw() = raw
+
+    override fun status(statusCode: Int) = raw.setStatus(statusCode)
+
+    override fun status() = statusCode
+
+    override fun header(header: String, value: String) = raw.setHeader(header, value)
+
+    override fun type(contentType: String) = raw.setContentType(contentType)
+}
+
+private class BodyStream(body: ByteArray) : ServletInputStream() {
+
+    private val input = ByteArrayInputStream(body)
+
+    override fun read() = input.read()
+
+    override fun read(b: ByteArray, off: Int, len: Int) = input.read(b, off, len)
+
+    override fun isFinished() = input.available() == 0
+
+    override fun isReady() = true
+
+    override fun setReadListener(readListener: ReadListener?) {}
+}
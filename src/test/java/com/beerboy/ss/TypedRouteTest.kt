@@ -0,0 +1,66 @@
+package com.beerboy.ss
+
+import ch.qos.logback.classic.Level
+import com.beerboy.ss.descriptor.EndpointDescriptor
+import com.beerboy.ss.descriptor.MethodDescriptor
+import com.beerboy.ss.rest.Endpoint
+import com.beerboy.ss.rest.TypedRoute
+import org.junit.Assert
+import org.junit.Test
+import spark.HaltException
+import spark.Service
+import spark.globalstate.ServletFlag
+
+class TypedRouteTest {
+
+    data class Item(val name: String, val size: Int)
+
+    private val dispatcher: RouteDispatcher
+
+    init {
+        // Routes are registered but no server is started
+        ServletFlag.runFromServlet()
+        val sparkSwagger = SparkSwagger.of(Service.ignite(), Config(description = "Typed", title = "Typed",
+                host = "example.org:80", basePath = "", serviceName = "typed", logLevel = Level.INFO,
+                docPath = "/doc", extractUi = false, dispatchRoutes = true))
+        sparkSwagger.register(Endpoint { swagger ->
+            swagger.endpoint(EndpointDescriptor.endpointPath("/items")) { _, _ -> }
+                    .post(MethodDescriptor.path("/one").withRequestType(Item::class),
+                            TypedRoute<Item> { item, _, _ -> "${item.name}:${item.size}" })
+                    .post(MethodDescriptor.path("/many").withRequestAsCollection(Item::class),
+                            TypedRoute<List<Item>> { items, _, _ -> items.joinToString(",") { it.name } })
+        })
+        dispatcher = sparkSwagger.dispatcher
+    }
+
+    private fun post(path: String, body: String, charset: String? = null, encoding: String = charset ?: "UTF-8") =
+            dispatcher.handle(TestRequest("POST", "/typed/items$path",
+                    body = body.toByteArray(charset(encoding)), charset = charset), TestResponse())
+
+    private fun rejected(path: String, body: String, charset: String? = null) {
+        try {
+            post(path, body, charset, "UTF-8")
+            Assert.fail("Accepted $body")
+        } catch (e: HaltException) {
+            Assert.assertEquals(400, e.statusCode())
+            Assert.assertEquals("Invalid request body", e.body())
+        }
+    }
+
+    @Test
+    fun `bodies are decoded as the request type`() {
+        Assert.assertEquals("café:2", post("/one", "{\"name\":\"café\",\"size\":2}"))
+        Assert.assertEquals("café:2", post("/one", "{\"name\":\"café\",\"size\":2}", "ISO-8859-1"))
+        Assert.assertEquals("a,b", post("/many", "[{\"name\":\"a\",\"size\":1},{\"name\":\"b\",\"size\":2}]"))
+    }
+
+    @Test
+    fun `invalid bodies answer 400`() {
+        rejected("/one", "")
+        rejected("/one", "{\"name\":")
+        rejected("/one", "{\"name\":\"a\",\"size\":1} garbage")
+        rejected("/one", "{}", "x-unknown")
+        rejected("/many", "{\"name\":\"a\",\"size\":1}")
+        rejected("/many", "[{\"name\":\"a\",\"size\":\"large\"}]")
+    }
+}
@@ -0,0 +1,35 @@
+package com.beerboy.ss.cache
+
+import org.junit.Assert
+import org.junit.Test
+
+class FrequencySketchTest {
+
+    @Test
+    fun `frequencies are estimated up to fifteen`() {
+        val sketch = FrequencySketch(64)
+        for (i in 1..5) {
+            sketch.increment("hot")
+        }
+        sketch.increment("cold")
+        Assert.assertTrue(sketch.frequency("hot") >= 5)
+        Assert.assertTrue(sketch.frequency("cold") in 1..4)
+        for (i in 1..100) {
+            sketch.increment("hot")
+        }
+        Assert.assertEquals(15, sketch.frequency("hot"))
+    }
+
+    @Test
+    fun `frequencies are halved over time`() {
+        val sketch = FrequencySketch(16)
+        for (i in 1..10) {
+            sketch.increment("hot")
+        }
+        // Ten increments per slot fill the sample and trigger a reset
+        for (i in 0 until 160) {
+            sketch.increment("key$i")
+        }
+        Assert.assertTrue(sketch.frequency("hot") in 1..7)
+    }
+}
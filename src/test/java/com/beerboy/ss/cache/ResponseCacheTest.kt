@@ -0,0 +1,128 @@
+package com.beerboy.ss.cache
+
+import com.beerboy.ss.TestRequest
+import com.beerboy.ss.TestResponse
+import com.beerboy.ss.descriptor.CachePolicy
+import com.beerboy.ss.descriptor.ParameterDescriptor
+import org.junit.Assert
+import org.junit.Test
+import spark.Route
+import java.time.Duration
+
+class ResponseCacheTest {
+
+    private var now = 0L
+    private var calls = 0
+
+    private val counting = Route { request, _ -> calls++; "${request.uri()} #$calls" }
+
+    private fun cache(policy: CachePolicy, vararg parameters: ParameterDescriptor) =
+            ResponseCache("get", "/items/:id", policy, parameters.toList()) { now }
+
+    private fun handle(route: Route, request: TestRequest) = route.handle(request, TestResponse()).let {
+        if (it is ByteArray) String(it) else it
+    }
+
+    @Test
+    fun `responses are served from the cache until they expire`() {
+        val cache = cache(CachePolicy(Duration.ofSeconds(10), 100))
+        val route = cache.wrap(counting)
+        Assert.assertEquals("/items/1 #1", handle(route, TestRequest("GET", "/items/1")))
+        now += Duration.ofSeconds(9).toNanos()
+        Assert.assertEquals("/items/1 #1", handle(route, TestRequest("GET", "/items/1")))
+        Assert.assertEquals(1, cache.hits)
+        Assert.assertEquals(1, cache.misses)
+
+        now += Duration.ofSeconds(1).toNanos()
+        Assert.assertEquals("/items/1 #2", handle(route, TestRequest("GET", "/items/1")))
+        Assert.assertEquals("/items/1 #2", handle(route, TestRequest("GET", "/items/1")))
+        Assert.assertEquals(2, cache.hits)
+        Assert.assertEquals(2, cache.misses)
+    }
+
+    @Test
+    fun `hits restore the status and content type`() {
+        val cache = cache(CachePolicy(Duration.ofMinutes(1), 100))
+        val route = cache.wrap(Route { _, response -> response.type("application/json"); "{}" })
+        route.handle(TestRequest("GET", "/items/1"), TestResponse())
+        val response = TestResponse()
+        response.status(500)
+        Assert.assertArrayEquals("{}".toByteArray(), route.handle(TestRequest("GET", "/items/1"), response) as ByteArray)
+        Assert.assertEquals(200, response.statusCode)
+        Assert.assertEquals("application/json", response.contentType)
+    }
+
+    @Test
+    fun `only successful serialized responses are stored`() {
+        val cache = cache(CachePolicy(Duration.ofMinutes(1), 100))
+        val failing = cache.wrap(Route { _, response -> calls++; response.status(404); "missing" })
+        handle(failing, TestRequest("GET", "/items/1"))
+        handle(failing, TestRequest("GET", "/items/1"))
+        Assert.assertEquals(2, calls)
+
+        val unserialized = cache.wrap(Route { _, _ -> calls++; listOf("item") })
+        Assert.assertEquals(listOf("item"), handle(unserialized, TestRequest("GET", "/items/2")))
+        Assert.assertEquals(listOf("item"), handle(unserialized, TestRequest("GET", "/items/2")))
+        Assert.assertEquals(4, calls)
+        Assert.assertEquals(0, cache.size)
+    }
+
+    @Test
+    fun `keys hold the whole query string without key params`() {
+        val route = cache(CachePolicy(Duration.ofMinutes(1), 100)).wrap(counting)
+        Assert.assertEquals("/items/1 #1", handle(route, TestRequest("GET", "/items/1", "page=1")))
+        Assert.assertEquals("/items/1 #2", handle(route, TestRequest("GET", "/items/1", "page=2")))
+        Assert.assertEquals("/items/1 #3", handle(route, TestRequest("GET", "/items/1")))
+        Assert.assertEquals("/items/2 #4", handle(route, TestRequest("GET", "/items/2", "page=1")))
+        Assert.assertEquals("/items/1 #1", handle(route, TestRequest("GET", "/items/1", "page=1")))
+    }
+
+    @Test
+    fun `keys hold the values of the key params only`() {
+        val tenant = ParameterDescriptor.newBuilder().withName("X-Tenant").withType(ParameterDescriptor.ParameterType.HEADER).build()
+        val id = ParameterDescriptor.newBuilder().withName("id").withType(ParameterDescriptor.ParameterType.PATH).build()
+        val cache = cache(CachePolicy(Duration.ofMinutes(1), 100, listOf("id", "X-Tenant", "page")), tenant, id)
+        val route = cache.wrap(Route { request, _ -> calls++; "${request.params("id")} ${request.headers("X-Tenant")} ${request.queryParams("page")} #$calls" })
+
+        fun request(id: String, tenant: String, query: String) =
+                TestRequest("GET", "/items/$id", query, mapOf("X-Tenant" to tenant), mapOf(":id" to id))
+
+        Assert.assertEquals("1 a 1 #1", handle(route, request("1", "a", "page=1&debug=true")))
+        // Parameters outside the key don't split the cache
+        Assert.assertEquals("1 a 1 #1", handle(route, request("1", "a", "debug=false&page=1")))
+        Assert.assertEquals("1 b 1 #2", handle(route, request("1", "b", "page=1")))
+        Assert.assertEquals("1 a 2 #3", handle(route, request("1", "a", "page=2")))
+        Assert.assertEquals("2 a 1 #4", handle(route, request("2", "a", "page=1")))
+        Assert.assertEquals(4, cache.size)
+    }
+
+    @Test
+    fun `popular responses survive a flood of one-off requests`() {
+        val cache = cache(CachePolicy(Duration.ofMinutes(1), 100))
+        val route = cache.wrap(counting)
+        for (round in 1..5) {
+            for (i in 0 until 50) {
+                handle(route, TestRequest("GET", "/items/hot$i"))
+            }
+        }
+        val hits = cache.hits
+        for (i in 0 until 500) {
+            handle(route, TestRequest("GET", "/items/cold$i"))
+        }
+        for (i in 0 until 50) {
+            handle(route, TestRequest("GET", "/items/hot$i"))
+        }
+        Assert.assertEquals(hits + 50, cache.hits)
+        Assert.assertTrue(cache.size <= 100)
+    }
+
+    @Test
+    fun `invalidation drops every response`() {
+        val cache = cache(CachePolicy(Duration.ofMinutes(1), 100))
+        val route = cache.wrap(counting)
+        handle(route, TestRequest("GET", "/items/1"))
+        cache.invalidate()
+        Assert.assertEquals(0, cache.size)
+        Assert.assertEquals("/items/1 #2", handle(route, TestRequest("GET", "/items/1")))
+    }
+}
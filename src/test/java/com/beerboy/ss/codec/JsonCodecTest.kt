@@ -0,0 +1,165 @@
+package com.beerboy.ss.codec
+
+import com.beerboy.ss.TestRequest
+import com.google.gson.Gson
+import com.google.gson.TypeAdapter
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonWriter
+import org.junit.Assert
+import org.junit.Test
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+import java.lang.reflect.Proxy
+import javax.servlet.ServletOutputStream
+import javax.servlet.WriteListener
+import javax.servlet.http.HttpServletResponse
+
+class JsonCodecTest {
+
+    data class Item(val name: String, val size: Int)
+
+    class BufferedResponse {
+        val body = ByteArrayOutputStream()
+        var contentType: String? = null
+        var contentLength: Int? = null
+        var streams = 0
+
+        private val stream = object : ServletOutputStream() {
+            override fun write(b: Int) = body.write(b)
+            override fun isReady() = true
+            override fun setWriteListener(writeListener: WriteListener?) {}
+        }
+
+        val raw = Proxy.newProxyInstance(javaClass.classLoader, arrayOf(HttpServletResponse::class.java)) { _, method, args ->
+            when (method.name) {
+                "getContentType" -> contentType
+                "setContentType" -> { contentType = args[0] as String; null }
+                "setContentLength" -> { contentLength = args[0] as Int; null }
+                "getOutputStream" -> { streams++; stream }
+                else -> throw UnsupportedOperationException(method.name)
+            }
+        } as HttpServletResponse
+
+        fun text() = body.toString("UTF-8")
+    }
+
+    private val gson = Gson()
+
+    private fun <T> codec(type: Class<T>) = JsonCodec(gson, gson.getAdapter(type))
+
+    @Test
+    fun `responses fitting the buffer are sent with their length`() {
+        val response = BufferedResponse()
+        codec(Map::class.java).write(mapOf("name" to "café", "size" to 2), response.raw)
+
+        Assert.assertEquals("{\"name\":\"café\",\"size\":2}", response.text())
+        Assert.assertEquals(response.body.size(), response.contentLength)
+        Assert.assertEquals("application/json; charset=utf-8", response.contentType)
+        Assert.assertEquals(1, response.streams)
+    }
+
+    @Test
+    fun `the content type already set is kept`() {
+        val response = BufferedResponse()
+        response.contentType = "application/vnd.items+json"
+        codec(String::class.java).write("items", response.raw)
+
+        Assert.assertEquals("application/vnd.items+json", response.contentType)
+        Assert.assertEquals("\"items\"", response.text())
+    }
+
+    @Test
+    fun `larger responses are streamed without a length`() {
+        val value = (1..20000).map { "item-$it" }
+        val response = BufferedResponse()
+        codec(List::class.java).write(value, response.raw)
+
+        Assert.assertTrue(response.body.size() > 32 * 1024)
+        Assert.assertEquals(gson.toJson(value), response.text())
+        Assert.assertNull(response.contentLength)
+        Assert.assertEquals(1, response.streams)
+
+        // The buffer is reused by the next response of the thread
+        val next = BufferedResponse()
+        codec(String::class.java).write("next", next.raw)
+        Assert.assertEquals("\"next\"", next.text())
+        Assert.assertEquals(6, next.contentLength)
+    }
+
+    @Test
+    fun `buffers of failed writes are dropped`() {
+        val failing = JsonCodec(gson, object : TypeAdapter<String>() {
+            override fun write(out: JsonWriter, value: String) {
+                out.beginArray().value(value)
+                throw IllegalStateException("Not serializable")
+            }
+
+            override fun read(reader: JsonReader) = throw UnsupportedOperationException()
+        })
+        val response = BufferedResponse()
+        try {
+            failing.write("partial", response.raw)
+            Assert.fail("Failed write completed")
+        } catch (e: IllegalStateException) {
+            Assert.assertEquals("Not serializable", e.message)
+        }
+        Assert.assertEquals(0, response.streams)
+        Assert.assertNull(response.contentLength)
+
+        // Nothing of the failed value leaks into the next response of the thread
+        val next = BufferedResponse()
+        codec(String::class.java).write("next", next.raw)
+        Assert.assertEquals("\"next\"", next.text())
+        Assert.assertEquals(6, next.contentLength)
+    }
+
+    private fun request(body: String, charset: String? = null) =
+            TestRequest("POST", "/items", body = body.toByteArray(charset(charset ?: "UTF-8")), charset = charset)
+
+    private fun invalid(codec: JsonCodec<*>, body: String) {
+        try {
+            codec.read(request(body))
+            Assert.fail("Decoded $body")
+        } catch (e: IOException) {
+            // Expected
+        }
+    }
+
+    @Test
+    fun `bodies are decoded in the charset of the request`() {
+        val codec = codec(Item::class.java)
+        Assert.assertEquals(Item("café", 2), codec.read(request("{\"name\":\"café\",\"size\":2}")))
+        Assert.assertEquals(Item("café", 2), codec.read(request("{\"name\":\"café\",\"size\":2}", "ISO-8859-1")))
+        Assert.assertEquals(Item("café", 2), codec.read(request("{\"name\":\"café\",\"size\":2}", "utf-16")))
+    }
+
+    @Test
+    fun `collection codecs decode lists of the item type`() {
+        val codec = JsonCodecs(gson).codec<List<Item>>(Item::class.java, true)
+        Assert.assertEquals(listOf(Item("a", 1), Item("b", 2)),
+                codec.read(request("[{\"name\":\"a\",\"size\":1},{\"name\":\"b\",\"size\":2}]")))
+        Assert.assertEquals(emptyList<Item>(), codec.read(request("[]")))
+        invalid(codec, "{\"name\":\"a\",\"size\":1}")
+    }
+
+    @Test
+    fun `malformed, empty and trailing bodies are rejected`() {
+        val codec = codec(Item::class.java)
+        invalid(codec, "")
+        invalid(codec, "{\"name\":")
+        invalid(codec, "{\"size\":\"large\"}")
+        invalid(codec, "[1, 2]")
+        invalid(codec, "{\"name\":\"a\",\"size\":1} garbage")
+        invalid(codec, "{\"name\":\"a\",\"size\":1}{}")
+    }
+
+    @Test
+    fun `unsupported charsets are rejected`() {
+        try {
+            codec(Item::class.java).read(TestRequest("POST", "/items", body = "{}".toByteArray(), charset = "x-unknown"))
+            Assert.fail("Decoded an unknown charset")
+        } catch (e: IOException) {
+            // Expected
+        }
+    }
+}
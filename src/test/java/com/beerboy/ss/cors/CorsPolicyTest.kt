@@ -0,0 +1,71 @@
+package com.beerboy.ss.cors
+
+import com.beerboy.ss.ConfigCors
+import com.beerboy.ss.TestRequest
+import com.beerboy.ss.TestResponse
+import org.junit.Assert
+import org.junit.Test
+
+class CorsPolicyTest {
+
+    @Test
+    fun `matches request paths against route paths`() {
+        val cors = CorsPolicy(ConfigCors())
+        cors.allow("get", "thor/shields/:id")
+        cors.allow("put", "/thor/hammers/")
+        cors.allow("get", "thor/doc/*")
+        cors.allow("delete", "thor/bags")
+        Assert.assertEquals("GET, OPTIONS", cors.methods("/thor/shields/42", "GET"))
+        Assert.assertEquals("PUT, OPTIONS", cors.methods("/thor/hammers", "PUT"))
+        Assert.assertEquals("GET, OPTIONS", cors.methods("/thor/doc/css/ui.css", "GET"))
+        // Unbound paths get every method
+        Assert.assertEquals("DELETE, GET, PUT, OPTIONS", cors.methods("/thor/shields", "GET"))
+        Assert.assertEquals("DELETE, GET, PUT, OPTIONS", cors.methods("/thor/shields/42/owner", "GET"))
+        Assert.assertEquals("DELETE, GET, PUT, OPTIONS", cors.methods("/thor/bag", "DELETE"))
+    }
+
+    @Test
+    fun `allows the methods bound on a path`() {
+        val cors = CorsPolicy(ConfigCors())
+        cors.allow("get", "thor/shields/:id")
+        cors.allow("delete", "thor/shields/:id")
+        cors.allow("post", "thor/shields")
+        Assert.assertEquals("DELETE, GET, OPTIONS", cors.methods("/thor/shields/42", "DELETE"))
+        Assert.assertEquals("POST, OPTIONS", cors.methods("/thor/shields", "POST"))
+        Assert.assertEquals("DELETE, GET, POST, OPTIONS", cors.methods("/thor/unknown", "GET"))
+    }
+
+    @Test
+    fun `prefers static segments over parameters`() {
+        val cors = CorsPolicy(ConfigCors())
+        cors.allow("get", "thor/shields/:id")
+        cors.allow("post", "thor/shields/latest")
+        cors.allow("put", "thor/:kind/latest")
+        Assert.assertEquals("POST, OPTIONS", cors.methods("/thor/shields/latest", "POST"))
+        Assert.assertEquals("GET, OPTIONS", cors.methods("/thor/shields/42", "GET"))
+        // The static path does not allow GET, the parameter path does
+        Assert.assertEquals("GET, OPTIONS", cors.methods("/thor/shields/latest", "GET"))
+        Assert.assertEquals("PUT, OPTIONS", cors.methods("/thor/shields/latest", "PUT"))
+        // No path allows the method, the best matching one answers
+        Assert.assertEquals("POST, OPTIONS", cors.methods("/thor/shields/latest", "PATCH"))
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun `rejects credentials for any origin`() {
+        CorsPolicy(ConfigCors(allowCredentials = true))
+    }
+
+    @Test
+    fun `allows credentials for listed origins only`() {
+        val cors = CorsPolicy(ConfigCors(allowedOrigins = listOf("https://app.example.org"), allowCredentials = true))
+
+        val allowed = TestResponse()
+        cors.apply(TestRequest("GET", "/thor/shields", headers = mapOf("Origin" to "https://app.example.org")), allowed)
+        Assert.assertEquals("https://app.example.org", allowed.headers["Access-Control-Allow-Origin"])
+        Assert.assertEquals("true", allowed.headers["Access-Control-Allow-Credentials"])
+
+        val other = TestResponse()
+        cors.apply(TestRequest("GET", "/thor/shields", headers = mapOf("Origin" to "https://evil.example.org")), other)
+        Assert.assertTrue(other.headers.isEmpty())
+    }
+}
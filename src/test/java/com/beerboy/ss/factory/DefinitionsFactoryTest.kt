@@ -1,6 +1,13 @@
 package com.beerboy.ss.factory
 
 import com.beerboy.ss.Foo
+import com.beerboy.ss.MyFoo
+import com.beerboy.ss.extensions.Sealed
+import com.beerboy.ss.model.properties.ArrayProperty
+import com.beerboy.ss.model.properties.RefProperty
+import com.beerboy.ss.model.properties.SealedModel
+import com.beerboy.ss.model.properties.SealedProperty
+import com.beerboy.ss.model.properties.StringProperty
 import com.beerboy.ss.model.utils.PropertyModelConverter
 import com.google.gson.Gson
 import org.junit.Assert
@@ -13,10 +20,21 @@ class DefinitionsFactoryTest {
     data class ClassWithCollection(
             @Description("barfoo")
             val data: List<SimpleClass>)
+    data class Node(
+            val value: SimpleClass,
+            val parent: Node?,
+            val children: List<Node>)
+
+    sealed class Expr : Sealed() {
+        class Lit(val value: Int) : Expr()
+        class Not(val expr: Expr) : Expr()
+    }
+
+    data class Holder(val expr: Expr)
 
     @Test
     fun `creates a definition for a simple object`() {
-        val map = DefinitionsFactory.create(SimpleClass::class.createType())
+        val map = DefinitionsFactory().create(SimpleClass::class.createType())
 
         Assert.assertEquals(
                 """{"SimpleClass":{"type":"object","properties":{"data":{"type":"string","required":true,"description":"barfoo","vendorExtensions":{}}},"isSimple":false,"vendorExtensions":{}}}""",
@@ -25,8 +43,44 @@ class DefinitionsFactoryTest {
 
     @Test
     fun `creates a definition for a class with collection`() {
-        val map = PropertyModelConverter().propertyToModel(DefinitionsFactory.createProperty(Foo::class.createType()))
+        val map = PropertyModelConverter().propertyToModel(DefinitionsFactory().createProperty(Foo::class.createType()))
 
         println(Gson().toJson(map))
     }
-}
\ No newline at end of file
+
+    @Test
+    fun `creates a single definition for a self referencing object`() {
+        val map = DefinitionsFactory().create(Node::class.createType())
+
+        Assert.assertEquals(setOf("Node", "SimpleClass"), map.keys)
+        val properties = map["Node"]!!.properties
+        Assert.assertEquals("#/definitions/SimpleClass", (properties["value"] as RefProperty).`$ref`)
+        Assert.assertEquals("#/definitions/Node", (properties["parent"] as RefProperty).`$ref`)
+        Assert.assertEquals("#/definitions/Node", ((properties["children"] as ArrayProperty).items as RefProperty).`$ref`)
+    }
+
+    @Test
+    fun `java introspector creates the same definitions as kotlin-reflect`() {
+        val types = listOf(SimpleClass::class.java, ClassWithCollection::class.java, Node::class.java, MyFoo::class.java)
+        val kotlinFactory = DefinitionsFactory(KotlinTypeIntrospector())
+        val javaFactory = DefinitionsFactory(JavaTypeIntrospector())
+
+        Assert.assertEquals(
+                types.map { Gson().toJson(kotlinFactory.create(it)) },
+                types.map { Gson().toJson(javaFactory.create(it)) })
+    }
+
+    @Test
+    fun `self referencing sealed classes are defined once and referenced`() {
+        for (factory in listOf(DefinitionsFactory(KotlinTypeIntrospector()), DefinitionsFactory(JavaTypeIntrospector()))) {
+            val map = factory.create(Holder::class.java)
+
+            Assert.assertEquals(setOf("Holder", "Expr"), map.keys)
+            val expr = map["Holder"]!!.properties["expr"] as SealedProperty
+            Assert.assertEquals(2, expr.anyOf.size)
+            val not = expr.anyOf.first { (it.properties["type"] as StringProperty).enum == listOf("Not") }
+            Assert.assertEquals("#/definitions/Expr", (not.properties["expr"] as RefProperty).`$ref`)
+            Assert.assertEquals(expr.anyOf, (map["Expr"] as SealedModel).anyOf)
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.beerboy.ss.factory
+
+import com.beerboy.ss.Address
+import com.beerboy.ss.Customer
+import com.beerboy.ss.Invoice
+import com.beerboy.ss.Line
+import com.beerboy.ss.Money
+import com.beerboy.ss.Order
+import com.beerboy.ss.Refund
+
+/**
+ * Compares the definition build time of the reflection backends. Run once per backend, so cold start numbers
+ * include the class loading of that backend only: kotlin or java.
+ */
+object IntrospectionBenchmark {
+
+    private val TYPES = listOf(Money::class.java, Address::class.java, Customer::class.java, Line::class.java,
+            Order::class.java, Refund::class.java, Invoice::class.java)
+
+    @JvmStatic
+    fun main(args: Array<String>) {
+        val backend = if (args.isNotEmpty()) args[0] else "kotlin"
+        val introspector: () -> TypeIntrospector = when (backend) {
+            "java" -> { { JavaTypeIntrospector() } }
+            else -> { { KotlinTypeIntrospector() } }
+        }
+        val iterations = if (args.size > 1) args[1].toInt() else 2000
+
+        var start = System.nanoTime()
+        val factory = DefinitionsFactory(introspector())
+        TYPES.forEach { factory.create(it) }
+        val cold = System.nanoTime() - start
+
+        // A new backend has no cached introspection, so every iteration introspects every type again
+        for (i in 0 until iterations / 10) {
+            val uncached = DefinitionsFactory(introspector())
+            TYPES.forEach { uncached.create(it) }
+        }
+        start = System.nanoTime()
+        for (i in 0 until iterations) {
+            val uncached = DefinitionsFactory(introspector())
+            TYPES.forEach { uncached.create(it) }
+        }
+        val warm = (System.nanoTime() - start) / iterations
+
+        start = System.nanoTime()
+        for (i in 0 until iterations) {
+            TYPES.forEach { factory.create(it) }
+        }
+        val cached = (System.nanoTime() - start) / iterations
+
+        println("Backend $backend: cold ${cold / 1000} us, uncached ${warm / 1000} us, cached ${cached / 1000} us per ${TYPES.size} types")
+    }
+}
@@ -0,0 +1,42 @@
+package com.beerboy.ss.factory
+
+import org.junit.Assert
+import org.junit.Test
+
+class KotlinMetadataTest {
+
+    class Account(
+            val id: Long,
+            val name: String,
+            val nickname: String?,
+            val tags: List<String>,
+            val aliases: List<String?>?,
+            var isActive: Boolean?,
+            private val secret: String?) {
+
+        val display: String?
+            get() = nickname ?: name
+    }
+
+    @Test
+    fun `nullability is read from the metadata of kotlin classes`() {
+        Assert.assertEquals(
+                mapOf("id" to false, "name" to false, "nickname" to true, "tags" to false, "aliases" to true,
+                        "isActive" to true, "secret" to true, "display" to true),
+                KotlinMetadata.propertyNullability(Account::class.java))
+    }
+
+    @Test
+    fun `java introspector and kotlin-reflect agree on nullability`() {
+        val java = JavaTypeIntrospector().properties(Account::class.java).map { it.name to it.type.isNullable }
+        val kotlin = KotlinTypeIntrospector().properties(Account::class.java).map { it.name to it.type.isNullable }
+        Assert.assertEquals(kotlin.toMap(), java.toMap())
+    }
+
+    @Test
+    fun `other types have no nullability`() {
+        Assert.assertEquals(emptyMap<String, Boolean>(), KotlinMetadata.propertyNullability(StringBuilder::class.java))
+        // File facades hold top level declarations, not class metadata
+        Assert.assertEquals(emptyMap<String, Boolean>(), KotlinMetadata.propertyNullability(Class.forName("com.beerboy.ss.factory.TopLevelKt")))
+    }
+}
@@ -0,0 +1,6 @@
+package com.beerboy.ss.factory
+
+/**
+ * Top level declaration, compiled to the file facade TopLevelKt.
+ */
+fun topLevelGreeting(name: String?) = "Hello ${name ?: "world"}"
@@ -0,0 +1,50 @@
+package com.beerboy.ss.metrics
+
+import org.junit.Assert
+import org.junit.Test
+
+class LatencyHistogramTest {
+
+    @Test
+    fun `buckets are contiguous`() {
+        for (value in 0L..100_000L) {
+            val index = LatencyHistogram.index(value)
+            Assert.assertTrue(value <= LatencyHistogram.upperBound(index))
+            Assert.assertTrue(index == 0 || value > LatencyHistogram.upperBound(index - 1))
+        }
+    }
+
+    @Test
+    fun `large values stay within the buckets`() {
+        val histogram = LatencyHistogram()
+        for (exponent in 3..62) {
+            val low = 1L shl exponent
+            for (value in longArrayOf(low, low + low / 3, low * 2 - 1)) {
+                val index = LatencyHistogram.index(value)
+                Assert.assertTrue(index >= LatencyHistogram.index(low - 1))
+                if (exponent <= 40) {
+                    Assert.assertTrue(value <= LatencyHistogram.upperBound(index))
+                    Assert.assertTrue(value > LatencyHistogram.upperBound(index - 1))
+                }
+                histogram.record(value)
+            }
+        }
+        Assert.assertEquals(180, histogram.count)
+        Assert.assertEquals(LatencyHistogram.upperBound(LatencyHistogram.index(Long.MAX_VALUE)), histogram.percentile(1.0))
+    }
+
+    @Test
+    fun `percentiles are within a bucket`() {
+        val histogram = LatencyHistogram()
+        for (value in 1L..1000L) {
+            histogram.record(value)
+        }
+        Assert.assertEquals(1000, histogram.count)
+        Assert.assertEquals(500500, histogram.sum)
+        val p50 = histogram.percentile(0.5)
+        val p99 = histogram.percentile(0.99)
+        Assert.assertTrue("p50 $p50", p50 in 500..563)
+        Assert.assertTrue("p99 $p99", p99 in 990..1114)
+        Assert.assertEquals(0, LatencyHistogram().percentile(0.99))
+    }
+}
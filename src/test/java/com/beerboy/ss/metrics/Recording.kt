@@ -0,0 +1,10 @@
+package com.beerboy.ss.metrics
+
+/**
+ * Records successful requests of the given latency, for tests outside of the metrics package.
+ */
+fun OperationMetrics.recordRequests(count: Int, millis: Long) {
+    for (i in 1..count) {
+        record(millis * 1_000_000, 200, 0, 0)
+    }
+}
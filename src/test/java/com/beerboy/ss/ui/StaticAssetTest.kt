@@ -0,0 +1,38 @@
+package com.beerboy.ss.ui
+
+import org.junit.Assert
+import org.junit.Test
+
+class StaticAssetTest {
+
+    @Test
+    fun `etags only depend on content`() {
+        val content = "{\"swagger\":\"2.0\"}".toByteArray()
+        val etag = StaticAsset.of("application/json", content).etag
+        Assert.assertEquals(etag, StaticAsset.of("text/plain", content.copyOf()).etag)
+        Assert.assertNotEquals(etag, StaticAsset.of("application/json", "{}".toByteArray()).etag)
+        Assert.assertTrue(etag.startsWith("\"") && etag.endsWith("\""))
+    }
+
+    @Test
+    fun `if none match lists are compared weakly`() {
+        Assert.assertTrue(StaticAsset.matches("\"abc\"", "\"abc\""))
+        Assert.assertTrue(StaticAsset.matches("\"x\", W/\"abc\" ", "\"abc\""))
+        Assert.assertTrue(StaticAsset.matches("*", "\"abc\""))
+        Assert.assertFalse(StaticAsset.matches("\"abc-gzip\"", "\"abc\""))
+        Assert.assertFalse(StaticAsset.matches("\"ab\"", "\"abc\""))
+        Assert.assertFalse(StaticAsset.matches(null, "\"abc\""))
+    }
+
+    @Test
+    fun `listed codings take precedence over wildcards`() {
+        Assert.assertTrue(StaticAsset.accepts("gzip", "gzip"))
+        Assert.assertTrue(StaticAsset.accepts("br, GZIP;q=0.5", "gzip"))
+        Assert.assertTrue(StaticAsset.accepts("*;q=0, gzip", "gzip"))
+        Assert.assertTrue(StaticAsset.accepts("br, *", "gzip"))
+        Assert.assertFalse(StaticAsset.accepts("*, gzip;q=0", "gzip"))
+        Assert.assertFalse(StaticAsset.accepts("br, *;q=0", "gzip"))
+        Assert.assertFalse(StaticAsset.accepts("gzipped", "gzip"))
+        Assert.assertFalse(StaticAsset.accepts(null, "gzip"))
+    }
+}
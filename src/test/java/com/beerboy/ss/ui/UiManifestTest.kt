@@ -0,0 +1,69 @@
+package com.beerboy.ss.ui
+
+import org.junit.After
+import org.junit.Assert
+import org.junit.Test
+import java.io.File
+import java.nio.file.Files
+
+class UiManifestTest {
+
+    private val folder = Files.createTempDirectory("ui-manifest").toFile()
+
+    @After
+    fun cleanUp() {
+        folder.deleteRecursively()
+    }
+
+    private fun extract(fingerprint: String?, vararg files: String): UiManifest {
+        val manifest = UiManifest.load(folder.path)
+        files.forEach { manifest.write(it, it.toByteArray()) }
+        manifest.store(fingerprint)
+        return manifest
+    }
+
+    private fun files() = folder.walk().filter { it.isFile && it.name != UiManifest.FILE_NAME }
+            .map { it.relativeTo(folder).path.replace(File.separatorChar, '/') }.toSet()
+
+    @Test
+    fun `extractions are current while the fingerprint and files are unchanged`() {
+        extract("v1", "index.html", "swagger-ui.css")
+        Assert.assertTrue(UiManifest.load(folder.path).isCurrent("v1"))
+        Assert.assertFalse(UiManifest.load(folder.path).isCurrent("v2"))
+        Assert.assertFalse(UiManifest.load(folder.path).isCurrent(null))
+
+        File(folder, "swagger-ui.css").delete()
+        Assert.assertFalse(UiManifest.load(folder.path).isCurrent("v1"))
+    }
+
+    @Test
+    fun `folders without a manifest are pruned`() {
+        File(folder, "swagger-ui.js.map").writeText("stale")
+        File(folder, "doc.json").writeText("stale")
+        Assert.assertFalse(UiManifest.load(folder.path).isCurrent("v1"))
+
+        extract("v1", "index.html")
+        Assert.assertEquals(setOf("index.html"), files())
+    }
+
+    @Test
+    fun `files not produced anymore are pruned`() {
+        extract("v1", "index.html", "swagger-ui.js.map", "templates/dark.css", "templates/light.css")
+        extract("v2", "index.html")
+        Assert.assertEquals(setOf("index.html"), files())
+        Assert.assertEquals(setOf("index.html"), UiManifest.load(folder.path).files)
+    }
+
+    @Test
+    fun `assets are only loaded from the manifest`() {
+        File(folder, "stale.js").writeText("stale")
+        Assert.assertEquals(0, UiAssets.fromFolder(folder.path).size())
+
+        extract("v1", "index.html", "swagger-ui.css", "templates/dark.css")
+        File(folder, "stale.js").writeText("stale")
+        val assets = UiAssets.fromFolder(folder.path)
+        Assert.assertEquals(2, assets.size())
+        Assert.assertNotNull(assets.get("swagger-ui.css"))
+        Assert.assertNull(assets.get("stale.js"))
+    }
+}
@@ -0,0 +1,61 @@
+package com.beerboy.ss.validation
+
+import com.beerboy.ss.descriptor.ParameterDescriptor
+import com.beerboy.ss.descriptor.ParameterDescriptor.ParameterType
+import org.junit.Assert
+import org.junit.Test
+import spark.HaltException
+import spark.Request
+import spark.Service
+
+class ParamsValidatorTest {
+
+    enum class Color { RED, GREEN }
+
+    private class StubRequest(private val params: Map<String, String>, private val query: Map<String, String>) : Request() {
+        override fun params(param: String): String? = params[param]
+        override fun queryParams(queryParam: String): String? = query[queryParam]
+        override fun headers(header: String): String? = null
+    }
+
+    private val validator = ParamsValidator.of(Service.ignite(), listOf(
+            ParameterDescriptor.newBuilder().withName("id").withType(ParameterType.PATH).withObject(Long::class.java).build(),
+            ParameterDescriptor.newBuilder().withName("code").withType(ParameterType.QUERY).withPattern("[A-Z]{3}").withRequired(true).build(),
+            ParameterDescriptor.newBuilder().withName("colors").withType(ParameterType.QUERY).withCollectionOf(Color::class.java).build()))!!
+
+    private fun status(params: Map<String, String>, query: Map<String, String>): Int {
+        return try {
+            validator.validate(StubRequest(params, query))
+            200
+        } catch (e: HaltException) {
+            e.statusCode()
+        }
+    }
+
+    @Test
+    fun `accepts valid parameters`() {
+        Assert.assertEquals(200, status(mapOf(":id" to "-9223372036854775808"), mapOf("code" to "EUR", "colors" to "RED,GREEN")))
+        Assert.assertEquals(200, status(mapOf(":id" to "42"), mapOf("code" to "USD")))
+    }
+
+    @Test
+    fun `rejects invalid parameters`() {
+        Assert.assertEquals(400, status(mapOf(":id" to "9223372036854775808"), mapOf("code" to "EUR")))
+        Assert.assertEquals(400, status(mapOf(":id" to "4x"), mapOf("code" to "EUR")))
+        Assert.assertEquals(400, status(mapOf(":id" to "42"), mapOf()))
+        Assert.assertEquals(400, status(mapOf(":id" to "42"), mapOf("code" to "EURO")))
+        Assert.assertEquals(400, status(mapOf(":id" to "42"), mapOf("code" to "EUR", "colors" to "RED,BLUE")))
+        Assert.assertEquals(400, status(mapOf(":id" to "42"), mapOf("code" to "EUR", "colors" to "RED,")))
+    }
+
+    @Test
+    fun `checks number formats`() {
+        Assert.assertTrue(ParamsValidator.isDecimal("-1.5e10", 0, 7))
+        Assert.assertTrue(ParamsValidator.isDecimal(".5", 0, 2))
+        Assert.assertFalse(ParamsValidator.isDecimal("1e", 0, 2))
+        Assert.assertFalse(ParamsValidator.isDecimal("-", 0, 1))
+        Assert.assertTrue(ParamsValidator.isInteger("2147483647", 0, 10, Int.MIN_VALUE.toLong(), Int.MAX_VALUE.toLong()))
+        Assert.assertFalse(ParamsValidator.isInteger("2147483648", 0, 10, Int.MIN_VALUE.toLong(), Int.MAX_VALUE.toLong()))
+        Assert.assertTrue(ParamsValidator.isUuid("123e4567-e89b-12d3-a456-426614174000", 0, 36))
+    }
+}